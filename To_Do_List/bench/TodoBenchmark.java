@@ -0,0 +1,323 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+// Benchmarks for the core task operations at several list sizes.
+//
+// Each benchmark warms up, then runs timed iterations and reports the mean
+// time per operation with its spread, the bytes allocated per operation and
+// the GC activity during measurement (the same numbers JMH's -prof gc
+// reports as gc.alloc.rate.norm / gc.count / gc.time).
+//
+// It is a plain main class rather than JMH so that it builds with javac
+// alone, like the app. Build and run from To_Do_List:
+//   javac -encoding UTF-8 -d out src/*.java bench/*.java
+//   java -Xmx4g -cp out TodoBenchmark [sizes=1000,100000,1000000] [filter]
+public class TodoBenchmark {
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+    private static final int ITERATIONS = 5;
+    private static final String EDITED = " (edited)";
+
+    // The table goes here; the app's own console output (reminders) is dropped
+    private static final PrintStream OUT = System.out;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Consumed results, so the JIT cannot drop the work that produced them
+    static volatile long sink;
+
+    interface Operation {
+        long run(int iteration) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = { 1_000, 100_000, 1_000_000 };
+        String filter = null;
+        for (String arg : args) {
+            if (arg.startsWith("sizes=")) {
+                sizes = Arrays.stream(arg.substring(6).split(",")).mapToInt(Integer::parseInt).toArray();
+            } else {
+                filter = arg;
+            }
+        }
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        OUT.printf("%-22s %10s %14s %12s %14s %8s %10s%n",
+                "BENCHMARK", "SIZE", "NS/OP", "ERROR", "ALLOC B/OP", "GC", "GC MS");
+        for (int size : sizes) {
+            Fixture fixture = new Fixture(size);
+            Random random = new Random(42);
+            try {
+                run("add", size, filter, i -> fixture.addAndRemove());
+                run("find", size, filter, i -> {
+                    Task task = fixture.store.findById(1 + random.nextInt(size));
+                    return task != null ? task.getId() : 0;
+                });
+                run("edit", size, filter, i -> fixture.edit(1 + random.nextInt(size)));
+                run("delete", size, filter, i -> fixture.deleteAndRestore(1 + random.nextInt(size)));
+                run("filter.completed", size, filter, i -> fixture.filters.completed().size());
+                run("filter.pending", size, filter, i -> fixture.filters.pending().size());
+                run("filter.category", size, filter, i -> fixture.filters.byCategory("work").size());
+                run("filter.priority", size, filter, i -> fixture.filters.byPriority(1).size());
+                run("filter.dueToday", size, filter, i -> fixture.filters.dueOn(LocalDate.now()).size());
+                run("filter.overdue", size, filter, i -> fixture.filters.overdue(LocalDate.now()).size());
+                run("filter.search", size, filter, i -> fixture.search.search("buy gift OR clean").size());
+                run("view", size, filter, i -> fixture.view());
+                run("save", size, filter, i -> fixture.save());
+                run("load", size, filter, i -> fixture.load());
+            } finally {
+                fixture.close();
+            }
+        }
+
+        if (filter == null || "http.mixed".startsWith(filter)) {
+            OUT.printf("%n%-22s %10s %8s %14s %12s %12s%n", "BENCHMARK", "SIZE", "THREADS", "REQ/S", "ERROR", "US/REQ");
+            for (int size : sizes) {
+                runHttp(size);
+            }
+        }
+    }
+
+    private static void run(String name, int size, String filter, Operation operation) throws Exception {
+        if (filter != null && !name.startsWith(filter)) {
+            return;
+        }
+        measure(operation, WARMUP_NANOS);
+
+        double[] nanosPerOp = new double[ITERATIONS];
+        long totalOps = 0;
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long[] gcBefore = gcTotals();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long[] result = measure(operation, ITERATION_NANOS);
+            nanosPerOp[i] = (double) result[1] / result[0];
+            totalOps += result[0];
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        long[] gcAfter = gcTotals();
+
+        double mean = Arrays.stream(nanosPerOp).average().orElse(0);
+        double variance = Arrays.stream(nanosPerOp).map(v -> (v - mean) * (v - mean)).sum() / Math.max(1, ITERATIONS - 1);
+        OUT.printf("%-22s %10d %14.1f %12.1f %14.1f %8d %10d%n", name, size, mean, Math.sqrt(variance),
+                (double) allocated / totalOps, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+    }
+
+    // Mixed requests from 1 to 8 client threads against one list served over
+    // HTTP on loopback: 80% GET of one task, 10% the tasks due today, 10%
+    // PATCH of a priority. Reads share the list's read lock, so they overlap
+    // up to the number of cores; changes take the write lock one at a time.
+    private static void runHttp(int size) throws Exception {
+        Path directory = Files.createTempDirectory("todo-bench");
+        Path dataFile = directory.resolve("bench.ser");
+        Path logFile = directory.resolve("bench.log");
+        TaskSnapshot.write(dataFile, TodoListApp.generateDummyTasks(size, 1), size + 1, 0L);
+        TaskList list = TaskList.open("bench", dataFile, logFile);
+        TaskHttpServer server = new TaskHttpServer(0, list.lock(), list, list.order(), null);
+        server.start();
+        HttpClient client = HttpClient.newHttpClient();
+        String tasks = "http://localhost:" + server.port() + "/tasks";
+        try {
+            for (int threads : new int[] { 1, 2, 4, 8 }) {
+                requests(client, tasks, size, threads, WARMUP_NANOS);
+                double[] perSecond = new double[ITERATIONS];
+                long total = 0;
+                long nanos = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    long[] result = requests(client, tasks, size, threads, ITERATION_NANOS);
+                    perSecond[i] = result[0] * 1e9 / result[1];
+                    total += result[0];
+                    nanos += result[1];
+                }
+                double mean = Arrays.stream(perSecond).average().orElse(0);
+                double variance = Arrays.stream(perSecond).map(v -> (v - mean) * (v - mean)).sum() / Math.max(1, ITERATIONS - 1);
+                OUT.printf("%-22s %10d %8d %14.0f %12.0f %12.1f%n", "http.mixed", size, threads, mean, Math.sqrt(variance),
+                        nanos / 1000.0 * threads / total);
+            }
+        } finally {
+            server.stop();
+            list.close();
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(logFile);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // Sends requests from the given number of threads for roughly the given
+    // time; returns {requests, nanos}
+    private static long[] requests(HttpClient client, String tasks, int size, int threads, long nanos) throws Exception {
+        long[] counts = new long[threads];
+        Exception[] failure = new Exception[1];
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(42 + worker);
+                try {
+                    while (System.nanoTime() - start < nanos) {
+                        request(client, tasks, random, size);
+                        counts[worker]++;
+                    }
+                } catch (Exception e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return new long[] { Arrays.stream(counts).sum(), elapsed };
+    }
+
+    private static void request(HttpClient client, String tasks, Random random, int size) throws Exception {
+        int id = 1 + random.nextInt(size);
+        int kind = random.nextInt(10);
+        HttpRequest.Builder request;
+        if (kind == 0) {
+            request = HttpRequest.newBuilder(URI.create(tasks + "/" + id))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"priority\":" + (1 + random.nextInt(3)) + "}"));
+        } else if (kind == 1) {
+            request = HttpRequest.newBuilder(URI.create(tasks + "?filter=today&limit=20"));
+        } else {
+            request = HttpRequest.newBuilder(URI.create(tasks + "/" + id));
+        }
+        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 300) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + response.request().uri());
+        }
+    }
+
+    // Runs operation for roughly the given time; returns {operations, nanos}.
+    // Every menu command holds the app's write lock, so each operation does too.
+    private static long[] measure(Operation operation, long nanos) throws Exception {
+        long ops = 0;
+        long result = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            TodoListApp.lock().writeLock().lock();
+            try {
+                result += operation.run((int) ops);
+            } finally {
+                TodoListApp.lock().writeLock().unlock();
+            }
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        sink = result;
+        return new long[] { ops, elapsed };
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] { count, time };
+    }
+
+    // TodoListApp's own list, started by the same method main uses, so the
+    // statistics, undo history, autosaver and reminders all see every change.
+    // It saves to a temp file; the task log is not opened. Changes end with
+    // an undo step, as each menu command does.
+    private static final class Fixture {
+        final TaskStore store = TodoListApp.store();
+        final TaskFilterIndex filters = TodoListApp.filters();
+        final TaskOrderIndex order = TodoListApp.order();
+        final TextSearchIndex search = TodoListApp.search();
+        final TaskTableRenderer renderer = new TaskTableRenderer(OutputStream.nullOutputStream());
+        final Path file;
+        final int size;
+        int nextId;
+
+        Fixture(int size) throws IOException {
+            this.size = size;
+            file = Files.createTempFile("todo-bench", ".ser");
+            TodoListApp.useFiles(file, file.resolveSibling(file.getFileName() + ".log"));
+            TodoListApp.lock().writeLock().lock();
+            try {
+                store.clear();
+                store.addAll(TodoListApp.generateDummyTasks(size, 1));
+            } finally {
+                TodoListApp.lock().writeLock().unlock();
+            }
+            nextId = size + 1;
+            TaskSnapshot.write(file, order.tasks(), nextId, 0L);
+            TodoListApp.startInMemoryList(Integer.getInteger("todo.undo.depth", 100));
+        }
+
+        long addAndRemove() {
+            Task task = new Task(nextId++, "Benchmark task", LocalDate.now(), "Work", 2);
+            store.add(task);
+            TodoListApp.commitStep("Add");
+            store.remove(task);
+            TodoListApp.commitStep("Delete");
+            return task.getId();
+        }
+
+        long deleteAndRestore(int id) {
+            Task task = store.findById(id);
+            store.remove(task);
+            TodoListApp.commitStep("Delete");
+            store.add(task);
+            TodoListApp.commitStep("Add");
+            return task.getId();
+        }
+
+        long edit(int id) {
+            Task task = store.findById(id);
+            task.setPriority(1 + (task.getPriority() % 3));
+            // A new value every time, since setting the same one skips the indexes
+            String description = task.getDescription();
+            task.setDescription(description.endsWith(EDITED)
+                    ? description.substring(0, description.length() - EDITED.length())
+                    : description + EDITED);
+            TodoListApp.commitStep("Edit");
+            return task.getPriority();
+        }
+
+        long view() throws IOException {
+            renderer.printHeader();
+            renderer.printRows(order.tasks());
+            renderer.flush();
+            return order.size();
+        }
+
+        long save() throws IOException {
+            TaskSnapshot.write(file, order.tasks(), nextId, 0L);
+            return size;
+        }
+
+        long load() throws IOException {
+            return TaskSnapshot.read(file).tasks.size();
+        }
+
+        void close() throws IOException {
+            TodoListApp.stopInMemoryList();
+            Files.deleteIfExists(file);
+        }
+    }
+}
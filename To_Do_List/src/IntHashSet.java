@@ -0,0 +1,140 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Open-addressing set of primitive ints, used for index posting lists. It
+// grows at half full and shrinks below an eighth, so iterating after mass
+// removals costs what is left rather than the peak size.
+class IntHashSet {
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] slots;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    IntHashSet() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int size() { return size; }
+
+    boolean isEmpty() { return size == 0; }
+
+    boolean contains(int value) {
+        int slot = mix(value) & mask;
+        int current;
+        while ((current = slots[slot]) != EMPTY) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    boolean add(int value) {
+        if (value == EMPTY) {
+            throw new IllegalArgumentException("Unsupported value: " + value);
+        }
+        int slot = mix(value) & mask;
+        int current;
+        while ((current = slots[slot]) != EMPTY) {
+            if (current == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        if (++size > resizeAt) {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    boolean remove(int value) {
+        int slot = mix(value) & mask;
+        int current;
+        while ((current = slots[slot]) != EMPTY) {
+            if (current == value) {
+                shiftBack(slot);
+                size--;
+                if (size < slots.length >>> 3 && slots.length > MIN_CAPACITY) {
+                    rehash(slots.length >>> 1);
+                }
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int current = slots[slot];
+            if (current == EMPTY) {
+                break;
+            }
+            int home = mix(current) & mask;
+            boolean movable = gap <= slot ? (home <= gap || home > slot) : (home <= gap && home > slot);
+            if (movable) {
+                slots[gap] = current;
+                gap = slot;
+            }
+        }
+        slots[gap] = EMPTY;
+    }
+
+    void forEach(IntConsumer action) {
+        for (int value : slots) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    int[] toArray() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int value : slots) {
+            if (value != EMPTY) {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        allocate(capacity);
+        for (int value : old) {
+            if (value != EMPTY) {
+                int slot = mix(value) & mask;
+                while (slots[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+}
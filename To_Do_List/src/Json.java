@@ -0,0 +1,212 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for task values: writing escaped strings and task
+// objects, and reading one flat object of strings, numbers, booleans and
+// nulls. Anything else is rejected with an IllegalArgumentException.
+class Json {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Json() {
+    }
+
+    static StringBuilder appendString(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    // {"id":1,"description":"...","dueDate":"MM/dd/yyyy" or null,"category":"...","priority":1,"completed":false}
+    static StringBuilder appendTask(StringBuilder out, TaskRecord task) {
+        return appendTask(out, task.id(), task.description(), TaskTableRenderer.dueDateText(task.dueDate(), null),
+                task.category(), task.priority(), task.completed());
+    }
+
+    // Same object from loose fields; dueDateText is already formatted or null
+    static StringBuilder appendTask(StringBuilder out, int id, String description, String dueDateText,
+                                    String category, int priority, boolean completed) {
+        out.append("{\"id\":").append(id).append(",\"description\":");
+        appendString(out, description);
+        out.append(",\"dueDate\":");
+        appendString(out, dueDateText);
+        out.append(",\"category\":");
+        appendString(out, category);
+        return out.append(",\"priority\":").append(priority)
+                  .append(",\"completed\":").append(completed).append('}');
+    }
+
+    // Values are String, Long, Double, Boolean or null, in document order
+    static Map<String, Object> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, Object> result = parser.object();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("unexpected trailing content");
+        }
+        return result;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return result;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                result.put(key, value());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return result;
+                }
+                if (c != ',') {
+                    throw error("expected ',' or '}'");
+                }
+            }
+        }
+
+        private Object value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return number();
+            }
+            throw error("unsupported value");
+        }
+
+        private Object number() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String number = text.substring(start, pos);
+            try {
+                return number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0
+                        ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                throw error("invalid number '" + number + "'");
+            }
+        }
+
+        private String string() {
+            expect('"');
+            // Most strings have no escapes and can be cut out directly
+            int start = pos;
+            while (pos < text.length() && text.charAt(pos) != '"' && text.charAt(pos) != '\\') {
+                pos++;
+            }
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                return text.substring(start, pos++);
+            }
+            StringBuilder out = new StringBuilder().append(text, start, pos);
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                char escape = next();
+                switch (escape) {
+                    case '"': case '\\': case '/': out.append(escape); break;
+                    case 'b': out.append('\b'); break;
+                    case 'f': out.append('\f'); break;
+                    case 'n': out.append('\n'); break;
+                    case 'r': out.append('\r'); break;
+                    case 't': out.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("truncated \\u escape");
+                        }
+                        try {
+                            out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("invalid \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("invalid escape '\\" + escape + "'");
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("unexpected end of input");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("invalid JSON at offset " + pos + ": " + message);
+        }
+    }
+}
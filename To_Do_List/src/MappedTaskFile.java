@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+// Read-only, memory-mapped view of a version 2 TaskSnapshot. Opening only
+// reads the header and category dictionary; tasks are decoded on demand,
+// either by record number (paging) or by id through the sorted id index.
+// The file is mapped in 1 GiB segments so it may be larger than the heap.
+class MappedTaskFile {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    // Header, empty count and category varints, checksum and index offset
+    private static final int MIN_SIZE = 17 + 2 + 4 + 8;
+
+    // sun.misc.Unsafe.invokeCleaner, or null where the runtime does not offer it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Mappings are then released by the garbage collector
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private MappedByteBuffer[] segments;
+    private final long lsn;
+    private final int nextId;
+    private final int count;
+    private final String[] categories;
+    private final long offsetTable;
+    private final long idTable;
+
+    private long cursor;
+    private byte[] scratch = new byte[256];
+
+    // Everything is checked here, so a damaged file fails to open with an
+    // IOException rather than failing later on some read
+    private MappedTaskFile(MappedByteBuffer[] segments, long fileSize) throws IOException {
+        this.segments = segments;
+        if (fileSize < 4 || getInt(0) != TaskSnapshot.MAGIC) {
+            throw new IOException("Not a task snapshot file");
+        }
+        if (fileSize < MIN_SIZE) {
+            throw new IOException("Snapshot file is truncated");
+        }
+        if (getByte(4) != TaskSnapshot.VERSION) {
+            throw new IOException("Snapshot has no index; save it once before opening it mapped");
+        }
+        offsetTable = getLong(fileSize - 8);
+        // The checksum sits just before the index and covers everything after the version byte
+        if (offsetTable < MIN_SIZE - 8 || offsetTable > fileSize - 8) {
+            throw corrupt();
+        }
+        long checksumAt = offsetTable - 4;
+        if (checksum(5, checksumAt) != getInt(checksumAt)) {
+            throw corrupt();
+        }
+        lsn = getLong(5);
+        nextId = getInt(13);
+        cursor = 17;
+        count = readVarint();
+        if (count < 0 || offsetTable + 16L * count + 8 != fileSize) {
+            throw corrupt();
+        }
+        int categoryCount = readVarint();
+        if (categoryCount < 0 || categoryCount > checksumAt - cursor) {
+            throw corrupt();
+        }
+        categories = new String[categoryCount];
+        for (int i = 0; i < categories.length; i++) {
+            int length = readVarint();
+            if (length < 0 || length > checksumAt - cursor) {
+                throw corrupt();
+            }
+            categories[i] = readString(length);
+        }
+        idTable = offsetTable + 8L * count;
+        for (int i = 0; i < count; i++) {
+            long offset = getLong(offsetTable + 8L * i);
+            int record = (int) getLong(idTable + 8L * i);
+            if (offset < cursor || offset >= checksumAt || record < 0 || record >= count) {
+                throw corrupt();
+            }
+        }
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Snapshot file is corrupt");
+    }
+
+    static MappedTaskFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int segmentCount = (int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+            MappedByteBuffer[] segments = new MappedByteBuffer[Math.max(1, segmentCount)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+            }
+            // The mapping stays valid after the channel is closed
+            try {
+                return new MappedTaskFile(segments, size);
+            } catch (IOException e) {
+                unmap(segments);
+                throw e;
+            }
+        }
+    }
+
+    // Unmaps the file now rather than whenever the buffers are collected, as
+    // Windows will not replace or delete a file that is still mapped. Reads
+    // after this throw instead of touching the unmapped memory.
+    void close() {
+        MappedByteBuffer[] mapped = segments;
+        segments = new MappedByteBuffer[0];
+        unmap(mapped);
+    }
+
+    private static void unmap(MappedByteBuffer[] segments) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        for (MappedByteBuffer segment : segments) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, segment);
+            } catch (ReflectiveOperationException e) {
+                return;
+            }
+        }
+    }
+
+    long lsn() { return lsn; }
+
+    int nextId() { return nextId; }
+
+    int count() { return count; }
+
+    // Decodes the task stored as the given record number (0-based, file order)
+    Task read(int record) {
+        if (record < 0 || record >= count) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + count);
+        }
+        cursor = getLong(offsetTable + 8L * record);
+        return decode();
+    }
+
+    // Binary search over the id index; returns -1 when the id is not stored
+    int recordOf(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = getLong(idTable + 8L * mid);
+            int entryId = (int) (entry >> 32);
+            if (entryId < id) {
+                low = mid + 1;
+            } else if (entryId > id) {
+                high = mid - 1;
+            } else {
+                return (int) entry;
+            }
+        }
+        return -1;
+    }
+
+    Task findById(int id) {
+        int record = recordOf(id);
+        return record < 0 ? null : read(record);
+    }
+
+    private Task decode() {
+        int id = readVarint();
+        int flags = getByte(cursor++);
+        LocalDate dueDate = null;
+        if ((flags & TaskSnapshot.FLAG_DUE_DATE) != 0) {
+            dueDate = LocalDate.ofEpochDay(getInt(cursor));
+            cursor += 4;
+        }
+        String category = categories[readVarint()];
+        String description = readString();
+        Task task = new Task(id, description, dueDate, category, flags & TaskSnapshot.PRIORITY_MASK);
+        task.setCompleted((flags & TaskSnapshot.FLAG_COMPLETED) != 0);
+        return task;
+    }
+
+    private int checksum(long from, long to) {
+        CRC32 crc = new CRC32();
+        while (from < to) {
+            ByteBuffer segment = segments[(int) (from >>> SEGMENT_BITS)].duplicate();
+            int position = (int) (from & SEGMENT_MASK);
+            int length = (int) Math.min(to - from, segment.capacity() - position);
+            segment.limit(position + length).position(position);
+            crc.update(segment);
+            from += length;
+        }
+        return (int) crc.getValue();
+    }
+
+    private byte getByte(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    private static boolean inOneSegment(long position, int length) {
+        return (position & SEGMENT_MASK) + length <= SEGMENT_MASK + 1;
+    }
+
+    private int getInt(long position) {
+        if (inOneSegment(position, 4)) {
+            return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & SEGMENT_MASK));
+        }
+        return ((getByte(position) & 0xFF) << 24) | ((getByte(position + 1) & 0xFF) << 16)
+                | ((getByte(position + 2) & 0xFF) << 8) | (getByte(position + 3) & 0xFF);
+    }
+
+    private long getLong(long position) {
+        return ((long) getInt(position) << 32) | (getInt(position + 4) & 0xFFFFFFFFL);
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = getByte(cursor++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in snapshot");
+    }
+
+    private String readString() {
+        return readString(readVarint());
+    }
+
+    private String readString(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        if (inOneSegment(cursor, length)) {
+            segments[(int) (cursor >>> SEGMENT_BITS)].get((int) (cursor & SEGMENT_MASK), scratch, 0, length);
+            cursor += length;
+        } else {
+            for (int i = 0; i < length; i++) {
+                scratch[i] = getByte(cursor++);
+            }
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Predicate;
+
+// Task list backed by a MappedTaskFile with an in-memory overlay. Tasks that
+// are looked up, added or deleted live in the overlay until the next save,
+// which writes the mapped records and the overlay into a fresh snapshot in
+// view order.
+class MappedTaskView {
+    private final Path path;
+    private MappedTaskFile base;
+    private final IntTaskMap overlay = new IntTaskMap();
+    private final IntHashSet deleted = new IntHashSet();
+    // Keyed by id so that removing one does not scan; kept in insertion order
+    private final LinkedHashMap<Integer, Task> added = new LinkedHashMap<>();
+    private int deletedFromBase;
+
+    MappedTaskView(Path path) throws IOException {
+        this.path = path;
+        this.base = MappedTaskFile.open(path);
+    }
+
+    long lsn() { return base.lsn(); }
+
+    int nextId() { return base.nextId(); }
+
+    int size() {
+        return base.count() - deletedFromBase + added.size();
+    }
+
+    boolean isEmpty() { return size() == 0; }
+
+    // Returns the live task for id, pulling it into the overlay so that
+    // changes made through its setters are kept until the next save
+    Task findById(int id) {
+        Task task = overlay.get(id);
+        if (task != null || deleted.contains(id)) {
+            return task;
+        }
+        task = base.findById(id);
+        if (task != null) {
+            overlay.put(id, task);
+        }
+        return task;
+    }
+
+    void add(Task task) {
+        overlay.put(task.getId(), task);
+        added.put(task.getId(), task);
+    }
+
+    boolean remove(int id) {
+        Task task = findById(id);
+        if (task == null) {
+            return false;
+        }
+        overlay.remove(id);
+        if (added.remove(id) == null) {
+            deleted.add(id);
+            deletedFromBase++;
+        }
+        return true;
+    }
+
+    // Tasks in file order followed by tasks added since the last save
+    Iterable<Task> tasks() {
+        return () -> new Iterator<Task>() {
+            private int record;
+            private Iterator<Task> addedTasks;
+            private Task next = advance();
+
+            private Task advance() {
+                while (record < base.count()) {
+                    Task task = base.read(record++);
+                    if (deleted.contains(task.getId())) {
+                        continue;
+                    }
+                    Task live = overlay.get(task.getId());
+                    return live != null ? live : task;
+                }
+                if (addedTasks == null) {
+                    addedTasks = added.values().iterator();
+                }
+                return addedTasks.hasNext() ? addedTasks.next() : null;
+            }
+
+            public boolean hasNext() { return next != null; }
+
+            public Task next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Task current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    List<Task> filter(Predicate<Task> predicate) {
+        List<Task> result = new ArrayList<>();
+        for (Task task : tasks()) {
+            if (predicate.test(task)) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // Writes base records merged with the overlay in view order and remaps
+    // the new file. Only the packed sort keys are held in memory; each task
+    // is read back through the id index as it is written. The old file is
+    // still being read while the new one is written, so the new one goes
+    // next to it and replaces it only after the old mapping is dropped.
+    void save(int nextId, long lsn) throws IOException {
+        long[] keys = new long[size()];
+        int count = 0;
+        for (Task task : tasks()) {
+            keys[count++] = TaskOrderIndex.sortKey(task);
+        }
+        Arrays.sort(keys);
+        Iterable<Task> sorted = () -> new Iterator<Task>() {
+            private int next;
+            public boolean hasNext() { return next < keys.length; }
+            public Task next() {
+                int id = (int) keys[next++];
+                Task task = overlay.get(id);
+                return task != null ? task : base.findById(id);
+            }
+        };
+        Path next = path.resolveSibling(path.getFileName() + ".new");
+        TaskSnapshot.write(next, sorted, keys.length, nextId, lsn);
+        base.close();
+        try {
+            Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // The old file again if the move failed, so the overlay still applies
+            base = MappedTaskFile.open(path);
+        }
+        overlay.clear();
+        deleted.clear();
+        added.clear();
+        deletedFromBase = 0;
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Immutable map from task id to TaskRecord: a hash array mapped trie that
+// takes 5 bits of the id per level, lowest first. Ids are already unique
+// ints, so they are used as their own hash and two keys never collide past
+// the last level. put and remove copy only the nodes on the path to the key,
+// at most 7 small arrays, and share the rest with the map they came from,
+// so keeping many versions costs O(log n) memory per change and handing a
+// version to another thread is just passing the reference.
+final class PersistentTaskMap {
+    static final PersistentTaskMap EMPTY = new PersistentTaskMap(Node.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentTaskMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() { return size; }
+
+    boolean isEmpty() { return size == 0; }
+
+    TaskRecord get(int id) {
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = 1 << ((id >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object entry = node.entries[node.index(bit)];
+            if (entry instanceof TaskRecord) {
+                TaskRecord record = (TaskRecord) entry;
+                return record.id() == id ? record : null;
+            }
+            node = (Node) entry;
+        }
+    }
+
+    // Adds the record or replaces the one with the same id
+    PersistentTaskMap put(TaskRecord record) {
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(record, 0, added);
+        return newRoot == root ? this : new PersistentTaskMap(newRoot, added[0] ? size + 1 : size);
+    }
+
+    PersistentTaskMap remove(int id) {
+        Node newRoot = root.remove(id, 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentTaskMap(newRoot != null ? newRoot : Node.EMPTY, size - 1);
+    }
+
+    void forEach(Consumer<TaskRecord> action) {
+        root.forEach(action);
+    }
+
+    List<TaskRecord> records() {
+        List<TaskRecord> result = new ArrayList<>(size);
+        forEach(result::add);
+        return result;
+    }
+
+    // Entries are TaskRecords or child Nodes, packed in bit order of bitmap
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] entries;
+
+        Node(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node put(TaskRecord record, int shift, boolean[] added) {
+            int bit = 1 << ((record.id() >>> shift) & MASK);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] copy = new Object[entries.length + 1];
+                System.arraycopy(entries, 0, copy, 0, index);
+                copy[index] = record;
+                System.arraycopy(entries, index, copy, index + 1, entries.length - index);
+                return new Node(bitmap | bit, copy);
+            }
+            Object entry = entries[index];
+            Object replacement;
+            if (entry instanceof TaskRecord) {
+                TaskRecord existing = (TaskRecord) entry;
+                if (existing == record) {
+                    return this;
+                }
+                if (existing.id() == record.id()) {
+                    replacement = record;
+                } else {
+                    // Two ids share this slot; push both one level down
+                    added[0] = true;
+                    replacement = EMPTY.put(existing, shift + BITS, new boolean[1])
+                                       .put(record, shift + BITS, new boolean[1]);
+                }
+            } else {
+                Node child = (Node) entry;
+                replacement = child.put(record, shift + BITS, added);
+                if (replacement == child) {
+                    return this;
+                }
+            }
+            Object[] copy = entries.clone();
+            copy[index] = replacement;
+            return new Node(bitmap, copy);
+        }
+
+        // Null when the node ends up empty
+        Node remove(int id, int shift) {
+            int bit = 1 << ((id >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object entry = entries[index];
+            Object replacement;
+            if (entry instanceof TaskRecord) {
+                if (((TaskRecord) entry).id() != id) {
+                    return this;
+                }
+                replacement = null;
+            } else {
+                Node child = (Node) entry;
+                Node newChild = child.remove(id, shift + BITS);
+                if (newChild == child) {
+                    return this;
+                }
+                // A child left with a single record is folded into this node
+                replacement = newChild != null && newChild.entries.length == 1
+                        && newChild.entries[0] instanceof TaskRecord ? newChild.entries[0] : newChild;
+            }
+            if (replacement != null) {
+                Object[] copy = entries.clone();
+                copy[index] = replacement;
+                return new Node(bitmap, copy);
+            }
+            if (entries.length == 1) {
+                return null;
+            }
+            Object[] copy = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, copy, 0, index);
+            System.arraycopy(entries, index + 1, copy, index, entries.length - index - 1);
+            return new Node(bitmap & ~bit, copy);
+        }
+
+        void forEach(Consumer<TaskRecord> action) {
+            for (Object entry : entries) {
+                if (entry instanceof TaskRecord) {
+                    action.accept((TaskRecord) entry);
+                } else {
+                    ((Node) entry).forEach(action);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+
+// Background snapshot writer. Registered as an index so every change marks
+// the list dirty; a burst of changes is coalesced into one save, written
+// after delayMillis or as soon as maxChanges have piled up.
+//
+// Under the lock the input thread mutates under, only a TaskHistory snapshot
+// is taken, which is O(1). Putting it in view order, encoding, fsync and the
+// atomic rename all happen on the writer thread. The dirty count and the
+// pending save are guarded by the autosaver's own monitor, never nested with
+// the lock, so changes may be reported from any thread.
+class TaskAutosaver implements TaskIndex, Closeable {
+    // A consistent copy of the list to write
+    static final class Capture {
+        final PersistentTaskMap tasks;
+        final int nextId;
+        final long lsn;
+
+        Capture(PersistentTaskMap tasks, int nextId, long lsn) {
+            this.tasks = tasks;
+            this.nextId = nextId;
+            this.lsn = lsn;
+        }
+    }
+
+    // Both called with the lock held. The app passes its read lock: capture
+    // only reads, and published truncates the log, which only writers append to.
+    interface Source {
+        Capture capture();
+        // The snapshot covering everything up to lsn is on disk
+        void published(long lsn);
+    }
+
+    private final Path path;
+    private final Lock lock;
+    private final Source source;
+    private final long delayMillis;
+    private final int maxChanges;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "todo-autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private int changes;
+    private boolean started;
+    private ScheduledFuture<?> pending;
+    private long pendingAt;
+
+    TaskAutosaver(Path path, Lock lock, Source source, long delayMillis, int maxChanges) {
+        this.path = path;
+        this.lock = lock;
+        this.source = source;
+        this.delayMillis = Math.max(0, delayMillis);
+        this.maxChanges = Math.max(1, maxChanges);
+    }
+
+    // Changes seen before this (loading, log replay) are already on disk
+    void start() {
+        synchronized (this) {
+            changes = 0;
+            started = true;
+        }
+    }
+
+    // Saves as soon as the writer is free, even if nothing changed
+    void requestSave() {
+        synchronized (this) {
+            changes = Math.max(changes, 1);
+            schedule(0);
+        }
+    }
+
+    private void markDirty(int count) {
+        synchronized (this) {
+            if (!started || count == 0) {
+                return;
+            }
+            changes += count;
+            schedule(changes >= maxChanges ? 0 : delayMillis);
+        }
+    }
+
+    // Keeps at most one save queued, moving it earlier if asked to
+    private void schedule(long delay) {
+        long at = System.currentTimeMillis() + delay;
+        if (pending != null) {
+            if (at >= pendingAt || !pending.cancel(false)) {
+                return;
+            }
+        }
+        pendingAt = at;
+        pending = executor.schedule(this::save, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void save() {
+        Capture capture;
+        synchronized (this) {
+            pending = null;
+            if (changes == 0) {
+                return;
+            }
+            changes = 0;
+        }
+        // A change landing in between is both captured and counted, which
+        // costs one extra save at most
+        lock.lock();
+        try {
+            capture = source.capture();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            // View order, so a mapped reader pages through it sorted. The
+            // sort keys end in the id, so sorting them alone is enough.
+            PersistentTaskMap tasks = capture.tasks;
+            long[] keys = new long[tasks.size()];
+            int[] count = new int[1];
+            tasks.forEach(record -> keys[count[0]++] = TaskOrderIndex.sortKey(record));
+            Arrays.sort(keys);
+            Iterable<Task> snapshot = () -> new Iterator<Task>() {
+                private int next;
+                public boolean hasNext() { return next < keys.length; }
+                public Task next() { return tasks.get((int) keys[next++]).toTask(); }
+            };
+            TaskSnapshot.write(path, snapshot, keys.length, capture.nextId, capture.lsn);
+            lock.lock();
+            try {
+                source.published(capture.lsn);
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            System.out.println("Error autosaving tasks: " + e.getMessage());
+            synchronized (this) {
+                changes++;
+                if (started) {
+                    schedule(delayMillis);
+                }
+            }
+        }
+    }
+
+    // Writes anything still unsaved and waits for it; must not be called
+    // while holding the lock
+    @Override
+    public void close() {
+        synchronized (this) {
+            started = false;
+            if (pending != null && pending.cancel(false)) {
+                pending = null;
+            }
+            if (changes > 0 && pending == null) {
+                pending = executor.schedule(this::save, 0, TimeUnit.MILLISECONDS);
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        markDirty(1);
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        markDirty(1);
+    }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        markDirty(1);
+    }
+
+    @Override
+    public void tasksChanged(List<Task> tasks, Field field, Object[] oldValues) {
+        markDirty(tasks.size());
+    }
+
+    @Override
+    public void tasksRemoved(List<Task> tasks) {
+        markDirty(tasks.size());
+    }
+
+    @Override
+    public void cleared() {
+        markDirty(1);
+    }
+}
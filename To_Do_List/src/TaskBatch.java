@@ -0,0 +1,303 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+// Non-interactive command runner for scripted bulk changes. Reads one
+// command per line, applies it straight to the store and prints only a
+// short result, so a million changes cost a parse and an index update each
+// instead of a menu round-trip and a full table render.
+//
+// Commands (fields separated by '|', blank lines and '#' comments skipped):
+//   add|description[|MM/dd/yyyy][|category][|priority]   prints "added <id>"
+//   edit|id|field|value[|field|value...]   fields: description, due, category, priority
+//   delete|id
+//   toggle|id
+//   filter|completed, pending, today, overdue
+//   filter|category|name, filter|priority|1-3, filter|search|words
+//   save                                   checkpoint now
+//   stats                                  metrics as one JSON line
+//   import|file.csv, export|file.jsonl     see TaskExchange
+//   bulk|action[|value]|filter[|argument]  actions: complete, reopen, category|name,
+//                                          priority|1-3, delete; filters as above
+//
+// Changes are not written to the task log one by one; the target saves a
+// snapshot at every checkpoint and once at the end instead.
+class TaskBatch {
+    // What the batch runs against
+    interface Target {
+        int nextId();
+        Task find(int id);
+        void add(Task task);
+        void remove(Task task);
+        // Null when kind is not a known filter
+        List<Task> filter(String kind, String argument);
+        void checkpoint();
+        String metrics();
+        // Both return a one-line summary
+        String importFile(String path) throws IOException;
+        String exportFile(String path) throws IOException;
+        // Applies action to every task the filter selects and returns how many
+        int bulk(String kind, String argument, TaskBulk.Action action, String value);
+    }
+
+    private final BufferedReader in;
+    private final Writer out;
+    private final Target target;
+    private final int checkpointEvery;
+
+    private int commands;
+    private int errors;
+    private int checkpoints;
+    private int changesSinceCheckpoint;
+
+    private String lastDateText;
+    private LocalDate lastDate;
+
+    // checkpointEvery: changes after which a snapshot is saved, 0 for only at the end
+    TaskBatch(Reader in, OutputStream out, Target target, int checkpointEvery) {
+        this.in = new BufferedReader(in, 64 * 1024);
+        this.out = new BufferedWriter(new OutputStreamWriter(out), 64 * 1024);
+        this.target = target;
+        this.checkpointEvery = checkpointEvery;
+    }
+
+    int errors() { return errors; }
+
+    // Runs every command, then saves once more and prints a summary line.
+    // A failed command counts as an error and the batch goes on; the final
+    // save happens even if reading the commands fails, since the log is bypassed.
+    void run() throws IOException {
+        long start = System.nanoTime();
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                commands++;
+                try {
+                    execute(trimmed.split("\\|", -1));
+                } catch (IllegalArgumentException | DateTimeParseException | IOException e) {
+                    errors++;
+                    out.write("error line " + lineNumber + ": " + e.getMessage() + "\n");
+                }
+                if (checkpointEvery > 0 && changesSinceCheckpoint >= checkpointEvery) {
+                    checkpoint();
+                }
+            }
+        } finally {
+            try {
+                if (changesSinceCheckpoint > 0) {
+                    checkpoint();
+                }
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                out.write("batch: " + commands + " commands, " + errors + " errors, "
+                        + checkpoints + " checkpoints, " + millis + " ms\n");
+            } finally {
+                out.flush();
+            }
+        }
+    }
+
+    private void execute(String[] fields) throws IOException {
+        String command = fields[0].trim().toLowerCase();
+        switch (command) {
+            case "add":
+                add(fields);
+                break;
+            case "edit":
+                edit(fields);
+                break;
+            case "delete":
+                target.remove(existing(fields));
+                changesSinceCheckpoint++;
+                break;
+            case "toggle":
+                Task task = existing(fields);
+                task.setCompleted(!task.isCompleted());
+                changesSinceCheckpoint++;
+                break;
+            case "filter":
+                filter(fields);
+                break;
+            case "save":
+                checkpoint();
+                break;
+            case "stats":
+                out.write(target.metrics() + "\n");
+                break;
+            case "import":
+                try {
+                    out.write(target.importFile(field(fields, 1)) + "\n");
+                } catch (IOException e) {
+                    // Rows read before the failure are in the store but not saved yet
+                    changesSinceCheckpoint++;
+                    throw e;
+                }
+                break;
+            case "export":
+                out.write(target.exportFile(field(fields, 1)) + "\n");
+                break;
+            case "bulk":
+                bulk(fields);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown command '" + fields[0].trim() + "'");
+        }
+    }
+
+    private void add(String[] fields) throws IOException {
+        String description = field(fields, 1);
+        if (description.isEmpty()) {
+            throw new IllegalArgumentException("task description cannot be empty");
+        }
+        LocalDate dueDate = parseDate(field(fields, 2));
+        String category = field(fields, 3);
+        String priority = field(fields, 4);
+        Task task = new Task(target.nextId(), description, dueDate,
+                category.isEmpty() ? "General" : category, priority.isEmpty() ? 2 : parsePriority(priority));
+        target.add(task);
+        changesSinceCheckpoint++;
+        out.write("added " + task.getId() + "\n");
+    }
+
+    private void edit(String[] fields) {
+        Task task = existing(fields);
+        if (fields.length < 4 || fields.length % 2 != 0) {
+            throw new IllegalArgumentException("edit needs field|value pairs");
+        }
+        // Validate every pair before changing anything
+        LocalDate dueDate = null;
+        int priority = 0;
+        for (int i = 2; i < fields.length; i += 2) {
+            String value = fields[i + 1].trim();
+            switch (fields[i].trim().toLowerCase()) {
+                case "description":
+                case "category":
+                    if (value.isEmpty()) {
+                        throw new IllegalArgumentException(fields[i].trim() + " cannot be empty");
+                    }
+                    break;
+                case "due":
+                    dueDate = parseDate(value);
+                    break;
+                case "priority":
+                    priority = parsePriority(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown field '" + fields[i].trim() + "'");
+            }
+        }
+        for (int i = 2; i < fields.length; i += 2) {
+            String value = fields[i + 1].trim();
+            switch (fields[i].trim().toLowerCase()) {
+                case "description":
+                    task.setDescription(value);
+                    break;
+                case "category":
+                    task.setCategory(value);
+                    break;
+                case "due":
+                    task.setDueDate(dueDate);
+                    break;
+                default:
+                    task.setPriority(priority);
+                    break;
+            }
+        }
+        changesSinceCheckpoint++;
+    }
+
+    private void filter(String[] fields) throws IOException {
+        List<Task> result = target.filter(field(fields, 1).toLowerCase(), field(fields, 2));
+        if (result == null) {
+            throw new IllegalArgumentException("unknown filter '" + field(fields, 1) + "'");
+        }
+        StringBuilder row = new StringBuilder(128);
+        for (Task task : result) {
+            row.setLength(0);
+            row.append(task.getId()).append('|')
+               .append(task.isCompleted() ? 'x' : ' ').append('|')
+               .append(task.getDescription()).append('|')
+               .append(task.getDueDate() != null ? formatDate(task.getDueDate()) : "").append('|')
+               .append(task.getCategory()).append('|')
+               .append(task.getPriority()).append('\n');
+            out.append(row);
+        }
+        out.write("found " + result.size() + "\n");
+    }
+
+    private void bulk(String[] fields) throws IOException {
+        TaskBulk.Action action = TaskBulk.Action.parse(field(fields, 1));
+        int next = 2;
+        String value = "";
+        if (action.takesValue()) {
+            value = field(fields, next++);
+            TaskBulk.change(action, value);
+        }
+        int changed = target.bulk(field(fields, next).toLowerCase(), field(fields, next + 1), action, value);
+        changesSinceCheckpoint += changed;
+        out.write("changed " + changed + "\n");
+    }
+
+    private void checkpoint() {
+        target.checkpoint();
+        checkpoints++;
+        changesSinceCheckpoint = 0;
+    }
+
+    private Task existing(String[] fields) {
+        String idText = field(fields, 1);
+        int id;
+        try {
+            id = Integer.parseInt(idText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid task ID '" + idText + "'");
+        }
+        Task task = target.find(id);
+        if (task == null) {
+            throw new IllegalArgumentException("task with ID " + id + " not found");
+        }
+        return task;
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length ? fields[index].trim() : "";
+    }
+
+    private static int parsePriority(String text) {
+        try {
+            int priority = Integer.parseInt(text);
+            if (priority >= 1 && priority <= 3) {
+                return priority;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("invalid priority '" + text + "', must be 1, 2 or 3");
+    }
+
+    // Batches usually repeat a handful of dates, so the last parse is reused
+    private LocalDate parseDate(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        if (!text.equals(lastDateText)) {
+            lastDate = LocalDate.parse(text, TaskTableRenderer.DATE_FORMAT);
+            lastDateText = text;
+        }
+        return lastDate;
+    }
+
+    private String formatDate(LocalDate date) {
+        if (!date.equals(lastDate)) {
+            lastDate = date;
+            lastDateText = date.format(TaskTableRenderer.DATE_FORMAT);
+        }
+        return lastDateText;
+    }
+}
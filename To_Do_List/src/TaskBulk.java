@@ -0,0 +1,92 @@
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+// One change applied to every task a filter selects, e.g. complete all
+// overdue tasks or purge the completed ones. Field changes go through
+// TaskStore.updateAll, so they run in parallel and each index is updated
+// in one pass; deletes go through TaskStore.removeAll.
+final class TaskBulk {
+    enum Action {
+        COMPLETE(TaskListener.Field.COMPLETED),
+        REOPEN(TaskListener.Field.COMPLETED),
+        CATEGORY(TaskListener.Field.CATEGORY),
+        PRIORITY(TaskListener.Field.PRIORITY),
+        DELETE(null);
+
+        final TaskListener.Field field;
+
+        Action(TaskListener.Field field) {
+            this.field = field;
+        }
+
+        boolean takesValue() {
+            return this == CATEGORY || this == PRIORITY;
+        }
+
+        // Stable code for the task log
+        byte code() {
+            return (byte) (ordinal() + 1);
+        }
+
+        static Action of(byte code) {
+            if (code < 1 || code > values().length) {
+                throw new IllegalArgumentException("unknown bulk action code " + code);
+            }
+            return values()[code - 1];
+        }
+
+        static Action parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown bulk action '" + name.trim()
+                        + "', must be complete, reopen, category, priority or delete");
+            }
+        }
+    }
+
+    private TaskBulk() {
+    }
+
+    // The change for one task; value is checked here, before anything is touched
+    static Consumer<Task> change(Action action, String value) {
+        switch (action) {
+            case COMPLETE:
+                return task -> task.setCompleted(true);
+            case REOPEN:
+                return task -> task.setCompleted(false);
+            case CATEGORY:
+                String category = value == null ? "" : value.trim();
+                if (category.isEmpty()) {
+                    throw new IllegalArgumentException("category cannot be empty");
+                }
+                return task -> task.setCategory(category);
+            case PRIORITY:
+                int priority = parsePriority(value);
+                return task -> task.setPriority(priority);
+            default:
+                throw new IllegalArgumentException(action + " is not a field change");
+        }
+    }
+
+    static void apply(TaskStore store, List<Task> selected, Action action, String value) {
+        if (action == Action.DELETE) {
+            store.removeAll(selected);
+        } else {
+            store.updateAll(selected, action.field, change(action, value));
+        }
+    }
+
+    private static int parsePriority(String text) {
+        try {
+            int priority = Integer.parseInt(text == null ? "" : text.trim());
+            if (priority >= 1 && priority <= 3) {
+                return priority;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("invalid priority '" + text + "', must be 1, 2 or 3");
+    }
+}
@@ -0,0 +1,394 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Streaming CSV and JSON Lines import/export. The format follows the file
+// extension: .csv, or .jsonl/.ndjson/.json for one JSON object per line.
+//
+// CSV has a header row naming its columns in any order: description
+// (required), dueDate, category, priority, completed and id (ignored on
+// import). Fields containing commas, quotes or line breaks are quoted
+// with doubled quotes inside, as in RFC 4180. Dates are MM/dd/yyyy, the
+// same format addTask accepts.
+//
+// Import reads the file on one thread, cuts it into chunks of records and
+// parses the chunks in parallel; parsed records reach the sink in file
+// order. Only a few chunks per parser thread are in flight at a time, so
+// memory stays bounded however large the file is.
+class TaskExchange {
+    private static final int CHUNK_SIZE = 4096;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_REPORTED_ERRORS = 10;
+    private static final String[] CSV_COLUMNS = { "id", "description", "dueDate", "category", "priority", "completed" };
+
+    // Outcome of an import
+    static final class Result {
+        long imported;
+        long failed;
+        final List<String> errors = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            return imported + " imported, " + failed + " failed";
+        }
+    }
+
+    private enum Format { CSV, JSON_LINES }
+
+    private TaskExchange() {
+    }
+
+    private static Format formatOf(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+            return Format.JSON_LINES;
+        }
+        throw new IllegalArgumentException("unknown file type '" + path.getFileName() + "', use .csv or .jsonl");
+    }
+
+    // Writes tasks in iteration order; returns how many were written
+    static long exportTasks(Path path, Iterable<Task> tasks) throws IOException {
+        Format format = formatOf(path);
+        long written = 0;
+        LocalDate lastDate = null;
+        String lastDateText = "";
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+            StringBuilder line = new StringBuilder(256);
+            if (format == Format.CSV) {
+                out.write(String.join(",", CSV_COLUMNS));
+                out.write('\n');
+            }
+            for (Task task : tasks) {
+                LocalDate dueDate = task.getDueDate();
+                if (dueDate == null) {
+                    lastDate = null;
+                    lastDateText = "";
+                } else if (!dueDate.equals(lastDate)) {
+                    lastDate = dueDate;
+                    lastDateText = dueDate.format(TaskTableRenderer.DATE_FORMAT);
+                }
+                line.setLength(0);
+                if (format == Format.CSV) {
+                    line.append(task.getId()).append(',');
+                    appendCsv(line, task.getDescription()).append(',');
+                    line.append(lastDateText).append(',');
+                    appendCsv(line, task.getCategory()).append(',');
+                    line.append(task.getPriority()).append(',').append(task.isCompleted());
+                } else {
+                    Json.appendTask(line, task.getId(), task.getDescription(), dueDate != null ? lastDateText : null,
+                            task.getCategory(), task.getPriority(), task.isCompleted());
+                }
+                line.append('\n');
+                out.append(line);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        if (value == null) {
+            return out;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            out.append(c);
+            if (c == '"') {
+                out.append('"');
+            }
+        }
+        return out.append('"');
+    }
+
+    // Parses path with the given number of threads and hands each task to
+    // sink on the calling thread, in file order. Records have id 0; the
+    // caller assigns ids. Bad records are counted and skipped.
+    static Result importTasks(Path path, int threads, Consumer<TaskRecord> sink) throws IOException {
+        Format format = formatOf(path);
+        Result result = new Result();
+        ExecutorService parsers = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "todo-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = Math.max(2, threads * 2);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+            RecordReader records = new RecordReader(in, format == Format.CSV);
+            int[] columns = null;
+            if (format == Format.CSV) {
+                String header = records.next();
+                if (header == null) {
+                    return result;
+                }
+                columns = csvColumns(header);
+            }
+            int[] columnMap = columns;
+            while (true) {
+                List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+                long[] lineNumbers = new long[CHUNK_SIZE];
+                String record;
+                while (chunk.size() < CHUNK_SIZE && (record = records.next()) != null) {
+                    if (!record.trim().isEmpty()) {
+                        lineNumbers[chunk.size()] = records.recordLine;
+                        chunk.add(record);
+                    }
+                }
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                inFlight.add(parsers.submit(() -> parseChunk(chunk, lineNumbers, format, columnMap)));
+                if (inFlight.size() >= maxInFlight) {
+                    apply(inFlight.poll(), result, sink);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                apply(inFlight.poll(), result, sink);
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+        return result;
+    }
+
+    private static void apply(Future<Chunk> pending, Result result, Consumer<TaskRecord> sink) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause(), e.getCause());
+        }
+        for (TaskRecord record : chunk.records) {
+            sink.accept(record);
+        }
+        result.imported += chunk.records.size();
+        result.failed += chunk.failed;
+        for (String error : chunk.errors) {
+            if (result.errors.size() < MAX_REPORTED_ERRORS) {
+                result.errors.add(error);
+            }
+        }
+    }
+
+    private static final class Chunk {
+        final List<TaskRecord> records;
+        final List<String> errors = new ArrayList<>();
+        int failed;
+
+        Chunk(int size) {
+            records = new ArrayList<>(size);
+        }
+    }
+
+    private static Chunk parseChunk(List<String> lines, long[] lineNumbers, Format format, int[] columns) {
+        Chunk chunk = new Chunk(lines.size());
+        DateCache dates = new DateCache();
+        List<String> fields = new ArrayList<>(CSV_COLUMNS.length);
+        for (int i = 0; i < lines.size(); i++) {
+            try {
+                chunk.records.add(format == Format.CSV
+                        ? parseCsv(lines.get(i), columns, fields, dates)
+                        : parseJson(lines.get(i), dates));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                chunk.failed++;
+                if (chunk.errors.size() < MAX_REPORTED_ERRORS) {
+                    chunk.errors.add("line " + lineNumbers[i] + ": " + e.getMessage());
+                }
+            }
+        }
+        return chunk;
+    }
+
+    // For each of CSV_COLUMNS, its index in the file or -1
+    private static int[] csvColumns(String header) {
+        List<String> names = splitCsv(header, new ArrayList<>());
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int c = 0; c < CSV_COLUMNS.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).trim().equalsIgnoreCase(CSV_COLUMNS[c])) {
+                    columns[c] = i;
+                }
+            }
+        }
+        if (columns[1] < 0) {
+            throw new IllegalArgumentException("CSV header has no description column");
+        }
+        return columns;
+    }
+
+    private static TaskRecord parseCsv(String line, int[] columns, List<String> fields, DateCache dates) {
+        splitCsv(line, fields);
+        return task(column(fields, columns[1]), dates.parse(column(fields, columns[2])), column(fields, columns[3]),
+                column(fields, columns[4]), column(fields, columns[5]));
+    }
+
+    private static String column(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : "";
+    }
+
+    // RFC 4180 field splitting into fields, which is cleared first
+    private static List<String> splitCsv(String line, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static TaskRecord parseJson(String line, DateCache dates) {
+        Map<String, Object> object = Json.parseObject(line);
+        Object dueDate = object.get("dueDate");
+        return task(text(object.get("description")), dates.parse(text(dueDate)), text(object.get("category")),
+                text(object.get("priority")), text(object.get("completed")));
+    }
+
+    private static String text(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    // Same defaults and limits as addTask
+    private static TaskRecord task(String description, LocalDate dueDate, String category, String priority, String completed) {
+        if (description.trim().isEmpty()) {
+            throw new IllegalArgumentException("task description cannot be empty");
+        }
+        int priorityValue = 2;
+        if (!priority.trim().isEmpty()) {
+            try {
+                priorityValue = Integer.parseInt(priority.trim());
+            } catch (NumberFormatException e) {
+                priorityValue = 0;
+            }
+            if (priorityValue < 1 || priorityValue > 3) {
+                throw new IllegalArgumentException("invalid priority '" + priority + "', must be 1, 2 or 3");
+            }
+        }
+        return new TaskRecord(0, description, dueDate, category.trim().isEmpty() ? "General" : category,
+                priorityValue, parseCompleted(completed), 0L);
+    }
+
+    private static boolean parseCompleted(String text) {
+        switch (text.trim().toLowerCase(Locale.ROOT)) {
+            case "":
+            case "false":
+            case "no":
+            case "0":
+                return false;
+            case "true":
+            case "yes":
+            case "1":
+            case "x":
+                return true;
+            default:
+                throw new IllegalArgumentException("invalid completed value '" + text + "'");
+        }
+    }
+
+    // Exports tend to repeat a small set of dates; reuses the last parse
+    private static final class DateCache {
+        private String lastText;
+        private LocalDate lastDate;
+
+        LocalDate parse(String text) {
+            String trimmed = text.trim();
+            if (trimmed.isEmpty()) {
+                return null;
+            }
+            if (!trimmed.equals(lastText)) {
+                lastDate = LocalDate.parse(trimmed, TaskTableRenderer.DATE_FORMAT);
+                lastText = trimmed;
+            }
+            return lastDate;
+        }
+    }
+
+    // Splits input into records: one per line, except that a CSV record
+    // continues onto the next line while a quoted field is still open
+    private static final class RecordReader {
+        private final BufferedReader in;
+        private final boolean csv;
+        long lineNumber;
+        long recordLine;
+
+        RecordReader(BufferedReader in, boolean csv) {
+            this.in = in;
+            this.csv = csv;
+        }
+
+        String next() throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            recordLine = lineNumber;
+            if (!csv || !oddQuotes(line)) {
+                return line;
+            }
+            StringBuilder record = new StringBuilder(line);
+            boolean open = true;
+            while (open && (line = in.readLine()) != null) {
+                lineNumber++;
+                record.append('\n').append(line);
+                open = open != oddQuotes(line);
+            }
+            return record.toString();
+        }
+
+        private static boolean oddQuotes(String line) {
+            int quotes = 0;
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == '"') {
+                    quotes++;
+                }
+            }
+            return quotes % 2 != 0;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.time.LocalDate;
+import java.util.*;
+
+// Secondary indexes behind filterTasks. Each filter reads only the ids that
+// match, so its cost follows the size of the result rather than the list.
+class TaskFilterIndex implements TaskIndex {
+    private static final int MAX_PRIORITY = 3;
+
+    private final TaskStore store;
+    private final Map<String, IntHashSet> byCategory = new HashMap<>();
+    private final IntHashSet[] byPriority = new IntHashSet[MAX_PRIORITY + 1];
+    // Sets rather than bitsets, since ids can be negative or far apart
+    private final IntHashSet completed = new IntHashSet();
+    private final IntHashSet pending = new IntHashSet();
+    private final NavigableMap<LocalDate, IntHashSet> byDueDate = new TreeMap<>();
+    // Pending tasks only, so overdue never walks past completed ones
+    private final NavigableMap<LocalDate, IntHashSet> pendingByDueDate = new TreeMap<>();
+
+    TaskFilterIndex(TaskStore store) {
+        this.store = store;
+        for (int i = 0; i < byPriority.length; i++) {
+            byPriority[i] = new IntHashSet();
+        }
+    }
+
+    static String foldCategory(String category) {
+        return category == null ? "" : category.toLowerCase(Locale.ROOT);
+    }
+
+    private static int priorityBucket(int priority) {
+        return priority >= 1 && priority <= MAX_PRIORITY ? priority : 0;
+    }
+
+    List<Task> completed() {
+        return resolve(completed);
+    }
+
+    List<Task> pending() {
+        return resolve(pending);
+    }
+
+    List<Task> byCategory(String category) {
+        IntHashSet ids = byCategory.get(foldCategory(category));
+        return ids == null ? new ArrayList<>() : resolve(ids);
+    }
+
+    List<Task> byPriority(int priority) {
+        return resolve(byPriority[priorityBucket(priority)]);
+    }
+
+    List<Task> dueOn(LocalDate date) {
+        IntHashSet ids = byDueDate.get(date);
+        return ids == null ? new ArrayList<>() : resolve(ids);
+    }
+
+    // Pending tasks due strictly before the given date
+    List<Task> overdue(LocalDate today) {
+        List<Task> result = new ArrayList<>();
+        for (IntHashSet ids : pendingByDueDate.headMap(today, false).values()) {
+            ids.forEach(id -> result.add(store.findById(id)));
+        }
+        return sorted(result);
+    }
+
+    private List<Task> resolve(IntHashSet ids) {
+        List<Task> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> result.add(store.findById(id)));
+        return sorted(result);
+    }
+
+    // Same order as viewTasks, with the id as a final tie-breaker
+    static List<Task> sorted(List<Task> result) {
+        result.sort(Comparator.comparingInt(Task::getPriority)
+                .thenComparing(task -> task.getDueDate() != null ? task.getDueDate() : LocalDate.MAX)
+                .thenComparingInt(Task::getId));
+        return result;
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        int id = task.getId();
+        byCategory.computeIfAbsent(foldCategory(task.getCategory()), key -> new IntHashSet()).add(id);
+        byPriority[priorityBucket(task.getPriority())].add(id);
+        (task.isCompleted() ? completed : pending).add(id);
+        addDueDate(byDueDate, task.getDueDate(), id);
+        if (!task.isCompleted()) {
+            addDueDate(pendingByDueDate, task.getDueDate(), id);
+        }
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        int id = task.getId();
+        removeCategory(task.getCategory(), id);
+        byPriority[priorityBucket(task.getPriority())].remove(id);
+        completed.remove(id);
+        pending.remove(id);
+        removeDueDate(byDueDate, task.getDueDate(), id);
+        removeDueDate(pendingByDueDate, task.getDueDate(), id);
+    }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        int id = task.getId();
+        switch (field) {
+            case CATEGORY:
+                removeCategory((String) oldValue, id);
+                byCategory.computeIfAbsent(foldCategory(task.getCategory()), key -> new IntHashSet()).add(id);
+                break;
+            case PRIORITY:
+                byPriority[priorityBucket((Integer) oldValue)].remove(id);
+                byPriority[priorityBucket(task.getPriority())].add(id);
+                break;
+            case COMPLETED:
+                if (task.isCompleted()) {
+                    pending.remove(id);
+                    completed.add(id);
+                    removeDueDate(pendingByDueDate, task.getDueDate(), id);
+                } else {
+                    completed.remove(id);
+                    pending.add(id);
+                    addDueDate(pendingByDueDate, task.getDueDate(), id);
+                }
+                break;
+            case DUE_DATE:
+                removeDueDate(byDueDate, (LocalDate) oldValue, id);
+                addDueDate(byDueDate, task.getDueDate(), id);
+                if (!task.isCompleted()) {
+                    removeDueDate(pendingByDueDate, (LocalDate) oldValue, id);
+                    addDueDate(pendingByDueDate, task.getDueDate(), id);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void cleared() {
+        byCategory.clear();
+        for (IntHashSet bucket : byPriority) {
+            bucket.clear();
+        }
+        completed.clear();
+        pending.clear();
+        byDueDate.clear();
+        pendingByDueDate.clear();
+    }
+
+    private void removeCategory(String category, int id) {
+        String key = foldCategory(category);
+        IntHashSet ids = byCategory.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            byCategory.remove(key);
+        }
+    }
+
+    private static void addDueDate(NavigableMap<LocalDate, IntHashSet> map, LocalDate dueDate, int id) {
+        if (dueDate != null) {
+            map.computeIfAbsent(dueDate, key -> new IntHashSet()).add(id);
+        }
+    }
+
+    private static void removeDueDate(NavigableMap<LocalDate, IntHashSet> map, LocalDate dueDate, int id) {
+        if (dueDate == null) {
+            return;
+        }
+        IntHashSet ids = map.get(dueDate);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            map.remove(dueDate);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// Mirrors the store into a PersistentTaskMap on every change, which gives
+// O(1) point-in-time snapshots for readers that must not hold the store
+// lock, and multi-level undo/redo. A history step is the pair of versions
+// before and after one command plus the ids it touched; both versions share
+// everything else with their neighbours, so a step costs O(log n) memory
+// rather than a copy of the list.
+class TaskHistory implements TaskIndex {
+    // Applies a recorded version of a task back to the live list
+    interface Target {
+        Task find(int id);
+        void add(Task task);
+        void remove(Task task);
+        // Logs a change made through the task's setters
+        void changed(Task task);
+    }
+
+    private static final class Step {
+        final String label;
+        final PersistentTaskMap before;
+        final PersistentTaskMap after;
+        final int[] ids;
+
+        Step(String label, PersistentTaskMap before, PersistentTaskMap after, int[] ids) {
+            this.label = label;
+            this.before = before;
+            this.after = after;
+            this.ids = ids;
+        }
+    }
+
+    private final int depth;
+    private final Deque<Step> undo = new ArrayDeque<>();
+    private final Deque<Step> redo = new ArrayDeque<>();
+    private final IntHashSet touched = new IntHashSet();
+
+    // Written under the store's write lock, read by anyone
+    private volatile PersistentTaskMap current = PersistentTaskMap.EMPTY;
+    private PersistentTaskMap committed = PersistentTaskMap.EMPTY;
+    private boolean applying;
+
+    // depth: steps kept for undo, 0 to keep snapshots only
+    TaskHistory(int depth) {
+        this.depth = Math.max(0, depth);
+    }
+
+    // The list as of the last change; safe to read from any thread
+    PersistentTaskMap snapshot() {
+        return current;
+    }
+
+    boolean canUndo() { return !undo.isEmpty(); }
+
+    boolean canRedo() { return !redo.isEmpty(); }
+
+    // Closes the changes since the last call into one undoable step
+    void commit(String label) {
+        if (touched.isEmpty()) {
+            return;
+        }
+        int[] ids = new int[touched.size()];
+        int[] next = new int[1];
+        touched.forEach(id -> ids[next[0]++] = id);
+        touched.clear();
+        if (depth > 0) {
+            if (undo.size() == depth) {
+                undo.removeLast();
+            }
+            undo.push(new Step(label, committed, current, ids));
+            redo.clear();
+        }
+        committed = current;
+    }
+
+    // Forgets every step, e.g. after loading; the current list becomes the base
+    void reset() {
+        undo.clear();
+        redo.clear();
+        touched.clear();
+        committed = current;
+    }
+
+    // Label of the step undone, or null when there is nothing to undo.
+    // Changes not yet committed are left as they are.
+    String undo(Target target) {
+        Step step = undo.poll();
+        if (step == null) {
+            return null;
+        }
+        restore(step.before, step.ids, target);
+        redo.push(step);
+        return step.label;
+    }
+
+    String redo(Target target) {
+        Step step = redo.poll();
+        if (step == null) {
+            return null;
+        }
+        restore(step.after, step.ids, target);
+        undo.push(step);
+        return step.label;
+    }
+
+    private void restore(PersistentTaskMap version, int[] ids, Target target) {
+        applying = true;
+        try {
+            for (int id : ids) {
+                TaskRecord record = version.get(id);
+                Task task = target.find(id);
+                if (record == null) {
+                    if (task != null) {
+                        target.remove(task);
+                    }
+                } else if (task == null) {
+                    target.add(record.toTask());
+                } else {
+                    task.setDescription(record.description());
+                    task.setDueDate(record.dueDate());
+                    task.setCategory(record.category());
+                    task.setPriority(record.priority());
+                    task.setCompleted(record.completed());
+                    target.changed(task);
+                }
+            }
+        } finally {
+            applying = false;
+        }
+        // current skipped the changes above; the restored tasks equal the
+        // recorded ones, so that version's records are shared instead
+        PersistentTaskMap restored = current;
+        for (int id : ids) {
+            TaskRecord record = version.get(id);
+            restored = record != null ? restored.put(record) : restored.remove(id);
+        }
+        current = restored;
+        committed = restored;
+    }
+
+    private void record(int id, PersistentTaskMap version) {
+        current = version;
+        if (depth > 0) {
+            touched.add(id);
+        }
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        if (!applying) {
+            record(task.getId(), current.put(TaskRecord.of(task)));
+        }
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        if (!applying) {
+            record(task.getId(), current.remove(task.getId()));
+        }
+    }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        if (!applying) {
+            record(task.getId(), current.put(TaskRecord.of(task)));
+        }
+    }
+
+    @Override
+    public void cleared() {
+        current = PersistentTaskMap.EMPTY;
+        reset();
+    }
+}
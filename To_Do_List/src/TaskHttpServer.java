@@ -0,0 +1,659 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+// Embedded HTTP/JSON front end for the same operations as the menu:
+//
+//   GET    /tasks?offset=0&limit=100&order=asc|desc   view order; limit=all for everything
+//   GET    /tasks?filter=completed|pending|today|overdue
+//   GET    /tasks?filter=category&value=Work, filter=priority&value=1, filter=search&value=words
+//   POST   /tasks                {"description":..., "dueDate":"MM/dd/yyyy", "category":..., "priority":1}
+//   GET    /tasks/{id}
+//   PATCH  /tasks/{id}           any of description, dueDate (null to remove), category, priority
+//   DELETE /tasks/{id}
+//   POST   /tasks/{id}/toggle
+//
+// Single-task responses carry the task's version as ETag. PATCH, PUT,
+// DELETE and toggle sent with If-Match fail with 409 when the task has
+// changed since, so two clients editing the same task cannot silently
+// overwrite each other.
+//
+//   GET    /stats                request count and latency percentiles
+//   GET    /metrics              TaskMetrics in Prometheus text format
+//   GET    /dashboard            TaskStatistics counts as JSON
+//   GET    /lists                names of the named lists
+//   ...    /lists/{name}/tasks...  the routes above, /dashboard and /metrics for one named list
+//
+// Every request touches the store only while holding the store lock, and only
+// long enough to look tasks up and copy them into immutable TaskRecords; JSON
+// is encoded and sent after the lock is released. Lookups, listings and
+// /metrics share its read lock and run in parallel; changes and /dashboard,
+// which rolls its counts over to the current day, take the write lock. Lists are streamed in
+// chunks with chunked transfer encoding, so a response of a million tasks
+// never exists in memory as a whole.
+class TaskHttpServer {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int DEFAULT_LIMIT = 100;
+
+    // What the server runs against; every method is called with the lock held,
+    // the write lock for add, remove, changed and dashboard
+    interface Target {
+        int nextId();
+        Task find(int id);
+        void add(Task task);
+        void remove(Task task);
+        // Logs a change made through the task's setters
+        void changed(byte op, Task task);
+        // Null when kind is not a known filter
+        List<Task> filter(String kind, String argument);
+        // Prometheus text exposition
+        String metrics();
+        // JSON object
+        String dashboard();
+    }
+
+    // The named lists, loaded on demand; every acquire is paired with a release
+    interface Lists {
+        List<String> names() throws IOException;
+        // Null when there is no such list and create is false
+        TaskList acquire(String name, boolean create) throws IOException;
+        void release(TaskList list);
+    }
+
+    private final Scope main;
+    private final Lists lists;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String executorName;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // lists may be null to serve the main list only
+    TaskHttpServer(int port, ReadWriteLock lock, Target target, TaskOrderIndex order, Lists lists) throws IOException {
+        this.main = new Scope(lock, target, order);
+        this.lists = lists;
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            executor = virtual;
+            executorName = "virtual threads";
+        } else {
+            int threads = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+            executor = Executors.newFixedThreadPool(threads);
+            executorName = threads + " platform threads";
+        }
+        // The JDK server flushes headers and body separately; with Nagle's
+        // algorithm on, small responses then wait for a delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() where the runtime has it
+    // (Java 21+); looked up reflectively so the code still builds on 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    int port() { return server.getAddress().getPort(); }
+
+    String executorName() { return executorName; }
+
+    LatencyHistogram latency() { return latency; }
+
+    void start() {
+        server.start();
+    }
+
+    // Lets requests in flight finish for up to a second
+    void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        long start = System.nanoTime();
+        try {
+            route(exchange);
+        } catch (NotFound e) {
+            sendError(exchange, 404, e.getMessage());
+        } catch (MethodNotAllowed e) {
+            sendError(exchange, 405, e.getMessage());
+        } catch (Conflict e) {
+            sendError(exchange, 409, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (Unavailable e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (IOException e) {
+            // Before the headers are out this is a failed read or write of
+            // task data; after, the client went away and is not told anything
+            sendError(exchange, 500, String.valueOf(e));
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e));
+        } finally {
+            exchange.close();
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        // "/tasks/5/toggle" splits into "", "tasks", "5", "toggle"
+        if (parts.length == 2 && parts[1].equals("stats")) {
+            requireMethod(method, "GET");
+            sendStats(exchange);
+        } else if (lists != null && parts.length >= 2 && parts[1].equals("lists")) {
+            routeList(exchange, method, parts);
+        } else {
+            main.route(exchange, method, parts);
+        }
+    }
+
+    // "/lists/work/tasks/5" is "/tasks/5" of the list named work. Adding a
+    // task to a list that does not exist yet creates it.
+    private void routeList(HttpExchange exchange, String method, String[] parts) throws IOException {
+        if (parts.length == 2) {
+            requireMethod(method, "GET");
+            StringBuilder text = new StringBuilder("{\"lists\":[");
+            boolean first = true;
+            for (String name : lists.names()) {
+                Json.appendString(text.append(first ? "" : ","), name);
+                first = false;
+            }
+            send(exchange, 200, text.append("]}"));
+            return;
+        }
+        boolean create = parts.length == 4 && parts[3].equals("tasks") && method.equals("POST");
+        TaskList list;
+        try {
+            list = lists.acquire(parts[2], create);
+        } catch (IOException e) {
+            throw new Unavailable("cannot load list '" + parts[2] + "': " + e.getMessage());
+        }
+        if (list == null) {
+            throw new NotFound("no list named '" + parts[2] + "'");
+        }
+        try {
+            String[] rest = new String[parts.length - 2];
+            rest[0] = "";
+            System.arraycopy(parts, 3, rest, 1, parts.length - 3);
+            new Scope(list.lock(), list, list.order()).route(exchange, method, rest);
+        } finally {
+            lists.release(list);
+        }
+    }
+
+    // The routes of one list: /tasks..., /dashboard and /metrics
+    private static final class Scope {
+        private final Lock read;
+        private final Lock write;
+        private final Target target;
+        private final TaskOrderIndex order;
+
+        Scope(ReadWriteLock lock, Target target, TaskOrderIndex order) {
+            this.read = lock.readLock();
+            this.write = lock.writeLock();
+            this.target = target;
+            this.order = order;
+        }
+
+        void route(HttpExchange exchange, String method, String[] parts) throws IOException {
+            if (parts.length == 2 && parts[1].equals("metrics")) {
+                requireMethod(method, "GET");
+                String metrics;
+                read.lock();
+                try {
+                    metrics = target.metrics();
+                } finally {
+                    read.unlock();
+                }
+                byte[] bytes = metrics.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            } else if (parts.length == 2 && parts[1].equals("dashboard")) {
+                requireMethod(method, "GET");
+                String dashboard;
+                write.lock();
+                try {
+                    dashboard = target.dashboard();
+                } finally {
+                    write.unlock();
+                }
+                send(exchange, 200, dashboard);
+            } else if (parts.length == 2 && parts[1].equals("tasks")) {
+                if (method.equals("POST")) {
+                    addTask(exchange);
+                } else {
+                    requireMethod(method, "GET");
+                    listTasks(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+                }
+            } else if (parts.length == 3 && parts[1].equals("tasks")) {
+                int id = parseId(parts[2]);
+                switch (method) {
+                    case "GET":
+                        sendTask(exchange, 200, read(id));
+                        break;
+                    case "PATCH":
+                    case "PUT":
+                        sendTask(exchange, 200, editTask(id, ifMatch(exchange), Json.parseObject(readBody(exchange))));
+                        break;
+                    case "DELETE":
+                        deleteTask(id, ifMatch(exchange));
+                        exchange.sendResponseHeaders(204, -1);
+                        break;
+                    default:
+                        throw new MethodNotAllowed();
+                }
+            } else if (parts.length == 4 && parts[1].equals("tasks") && parts[3].equals("toggle")) {
+                requireMethod(method, "POST");
+                sendTask(exchange, 200, toggleTask(parseId(parts[2]), ifMatch(exchange)));
+            } else {
+                sendError(exchange, 404, "no such resource");
+            }
+        }
+
+        private TaskRecord read(int id) {
+            read.lock();
+            try {
+                return TaskRecord.of(existing(id));
+            } finally {
+                read.unlock();
+            }
+        }
+
+        private void addTask(HttpExchange exchange) throws IOException {
+            Map<String, Object> body = Json.parseObject(readBody(exchange));
+            String description = stringField(body, "description");
+            if (description == null || description.trim().isEmpty()) {
+                throw new IllegalArgumentException("description cannot be empty");
+            }
+            String category = stringField(body, "category");
+            LocalDate dueDate = dateField(body);
+            int priority = body.containsKey("priority") ? priorityField(body) : 2;
+            TaskRecord added;
+            write.lock();
+            try {
+                Task task = new Task(target.nextId(), description,
+                        dueDate, category == null || category.trim().isEmpty() ? "General" : category, priority);
+                target.add(task);
+                added = TaskRecord.of(task);
+            } finally {
+                write.unlock();
+            }
+            sendTask(exchange, 201, added);
+        }
+
+        private TaskRecord editTask(int id, String ifMatch, Map<String, Object> body) {
+            // Validate everything first so a bad field changes nothing
+            String description = stringField(body, "description");
+            String category = stringField(body, "category");
+            LocalDate dueDate = dateField(body);
+            int priority = body.containsKey("priority") ? priorityField(body) : 0;
+            if (body.containsKey("description") && (description == null || description.trim().isEmpty())) {
+                throw new IllegalArgumentException("description cannot be empty");
+            }
+            if (body.containsKey("category") && (category == null || category.trim().isEmpty())) {
+                throw new IllegalArgumentException("category cannot be empty");
+            }
+            write.lock();
+            try {
+                Task task = existing(id, ifMatch);
+                long versionBefore = task.getVersion();
+                if (body.containsKey("description")) {
+                    task.setDescription(description);
+                }
+                if (body.containsKey("dueDate")) {
+                    task.setDueDate(dueDate);
+                }
+                if (body.containsKey("category")) {
+                    task.setCategory(category);
+                }
+                if (priority != 0) {
+                    task.setPriority(priority);
+                }
+                if (task.getVersion() != versionBefore) {
+                    target.changed(TaskLog.OP_EDIT, task);
+                }
+                return TaskRecord.of(task);
+            } finally {
+                write.unlock();
+            }
+        }
+
+        private void deleteTask(int id, String ifMatch) {
+            write.lock();
+            try {
+                target.remove(existing(id, ifMatch));
+            } finally {
+                write.unlock();
+            }
+        }
+
+        private TaskRecord toggleTask(int id, String ifMatch) {
+            write.lock();
+            try {
+                Task task = existing(id, ifMatch);
+                task.setCompleted(!task.isCompleted());
+                target.changed(TaskLog.OP_TOGGLE, task);
+                return TaskRecord.of(task);
+            } finally {
+                write.unlock();
+            }
+        }
+
+        private void listTasks(HttpExchange exchange, Map<String, String> query) throws IOException {
+            int offset = parseCount(query.getOrDefault("offset", "0"), "offset");
+            String limitText = query.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT));
+            int limit = limitText.equals("all") ? Integer.MAX_VALUE : parseCount(limitText, "limit");
+            boolean descending = "desc".equalsIgnoreCase(query.get("order"));
+            String filter = query.get("filter");
+
+            List<TaskRecord> firstChunk;
+            int total;
+            Long cursor = null;
+            // The page of a filter; its tasks are copied a chunk at a time like the view
+            List<Task> matches = null;
+            if (filter != null) {
+                read.lock();
+                try {
+                    List<Task> all = target.filter(filter.toLowerCase(), query.getOrDefault("value", ""));
+                    if (all == null) {
+                        throw new IllegalArgumentException("unknown filter '" + filter + "'");
+                    }
+                    if (descending) {
+                        Collections.reverse(all);
+                    }
+                    total = all.size();
+                    int from = Math.min(offset, total);
+                    int to = (int) Math.min(total, (long) from + limit);
+                    matches = all.subList(from, to);
+                    firstChunk = liveRecords(matches.subList(0, Math.min(CHUNK_SIZE, matches.size())));
+                } finally {
+                    read.unlock();
+                }
+                limit = matches.size() - Math.min(CHUNK_SIZE, matches.size());
+            } else {
+                read.lock();
+                try {
+                    total = order.size();
+                    List<Task> page = order.after(null, offset, Math.min(limit, CHUNK_SIZE), descending);
+                    firstChunk = records(page);
+                    cursor = page.isEmpty() ? null : TaskOrderIndex.sortKey(page.get(page.size() - 1));
+                } finally {
+                    read.unlock();
+                }
+                limit -= firstChunk.size();
+                if (firstChunk.size() < CHUNK_SIZE) {
+                    limit = 0;
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024)) {
+                StringBuilder text = new StringBuilder(256);
+                text.append("{\"total\":").append(total).append(",\"offset\":").append(offset).append(",\"tasks\":[");
+                boolean first = writeRecords(out, text, firstChunk, true);
+                // Later chunks continue after the last task sent; changes made in
+                // between show up the way they would for a cursor
+                while (limit > 0 && matches != null) {
+                    int from = matches.size() - limit;
+                    int to = Math.min(matches.size(), from + CHUNK_SIZE);
+                    List<TaskRecord> chunk;
+                    read.lock();
+                    try {
+                        chunk = liveRecords(matches.subList(from, to));
+                    } finally {
+                        read.unlock();
+                    }
+                    first = writeRecords(out, text, chunk, first);
+                    limit -= to - from;
+                }
+                while (limit > 0 && cursor != null) {
+                    List<TaskRecord> chunk;
+                    read.lock();
+                    try {
+                        List<Task> page = order.after(cursor, 0, Math.min(limit, CHUNK_SIZE), descending);
+                        chunk = records(page);
+                        cursor = page.isEmpty() ? null : TaskOrderIndex.sortKey(page.get(page.size() - 1));
+                    } finally {
+                        read.unlock();
+                    }
+                    first = writeRecords(out, text, chunk, first);
+                    limit -= chunk.size();
+                    if (chunk.size() < CHUNK_SIZE) {
+                        break;
+                    }
+                }
+                text.append("]}");
+                out.append(text);
+            }
+        }
+
+        // Copies of the tasks still in the list; one deleted since the filter ran is skipped
+        private List<TaskRecord> liveRecords(List<Task> tasks) {
+            List<TaskRecord> records = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                if (target.find(task.getId()) == task) {
+                    records.add(TaskRecord.of(task));
+                }
+            }
+            return records;
+        }
+
+        private Task existing(int id) {
+            Task task = target.find(id);
+            if (task == null) {
+                throw new NotFound("task with ID " + id + " not found");
+            }
+            return task;
+        }
+
+        // ifMatch is the If-Match header, or null to change the task unconditionally
+        private Task existing(int id, String ifMatch) {
+            Task task = existing(id);
+            if (ifMatch != null && !ifMatch.equals("*") && !ifMatch.equals(etag(task.getVersion()))) {
+                throw new Conflict("task with ID " + id + " has changed, current version is " + etag(task.getVersion()));
+            }
+            return task;
+        }
+    }
+
+    private static List<TaskRecord> records(List<Task> tasks) {
+        List<TaskRecord> records = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            records.add(TaskRecord.of(task));
+        }
+        return records;
+    }
+
+    // Returns whether nothing has been written yet
+    private static boolean writeRecords(Writer out, StringBuilder text, List<TaskRecord> records, boolean first) throws IOException {
+        for (TaskRecord record : records) {
+            if (!first) {
+                text.append(',');
+            }
+            first = false;
+            Json.appendTask(text, record);
+            if (text.length() >= 8 * 1024) {
+                out.append(text);
+                text.setLength(0);
+            }
+        }
+        return first;
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        StringBuilder text = new StringBuilder(256);
+        text.append("{\"requests\":").append(latency.count())
+            .append(",\"executor\":");
+        Json.appendString(text, executorName);
+        text.append(",\"meanMicros\":").append(Math.round(latency.mean() / 1000))
+            .append(",\"p50Micros\":").append(latency.percentile(0.50) / 1000)
+            .append(",\"p90Micros\":").append(latency.percentile(0.90) / 1000)
+            .append(",\"p99Micros\":").append(latency.percentile(0.99) / 1000)
+            .append(",\"p999Micros\":").append(latency.percentile(0.999) / 1000)
+            .append(",\"maxMicros\":").append(latency.max() / 1000).append('}');
+        send(exchange, 200, text);
+    }
+
+    private static void sendTask(HttpExchange exchange, int status, TaskRecord task) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag(task.version()));
+        send(exchange, status, Json.appendTask(new StringBuilder(160), task));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return; // Headers already sent; the response is cut short instead
+        }
+        StringBuilder text = new StringBuilder("{\"error\":");
+        Json.appendString(text, message);
+        try {
+            send(exchange, status, text.append('}'));
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static String ifMatch(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst("If-Match");
+        return value == null ? null : value.trim();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new MethodNotAllowed();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals >= 0 ? pair.substring(0, equals) : pair;
+            String value = equals >= 0 ? pair.substring(equals + 1) : "";
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new NotFound("invalid task ID '" + text + "'");
+        }
+    }
+
+    private static int parseCount(String text, String name) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("invalid " + name + " '" + text + "'");
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static LocalDate dateField(Map<String, Object> body) {
+        String text = stringField(body, "dueDate");
+        return text == null || text.isEmpty() ? null : LocalDate.parse(text, TaskTableRenderer.DATE_FORMAT);
+    }
+
+    private static int priorityField(Map<String, Object> body) {
+        Object value = body.get("priority");
+        if (value instanceof Long && (Long) value >= 1 && (Long) value <= 3) {
+            return ((Long) value).intValue();
+        }
+        throw new IllegalArgumentException("priority must be 1, 2 or 3");
+    }
+
+    // Mapped to 404, 405 and 409 responses
+    private static final class NotFound extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        NotFound(String message) {
+            super(message);
+        }
+    }
+
+    private static final class MethodNotAllowed extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        MethodNotAllowed() {
+            super("method not allowed");
+        }
+    }
+
+    private static final class Conflict extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        Conflict(String message) {
+            super(message);
+        }
+    }
+
+    // Mapped to 503: the list exists but its files cannot be read right now
+    private static final class Unavailable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unavailable(String message) {
+            super(message);
+        }
+    }
+}
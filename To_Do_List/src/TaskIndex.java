@@ -0,0 +1,24 @@
+import java.util.List;
+
+// A structure derived from the task store that must follow every change to it
+interface TaskIndex extends TaskListener {
+    void taskAdded(Task task);
+
+    void taskRemoved(Task task);
+
+    void cleared();
+
+    // Bulk forms used by TaskStore.updateAll and removeAll. Each index gets
+    // one call, possibly on a pool thread while other indexes run theirs.
+    default void tasksChanged(List<Task> tasks, Field field, Object[] oldValues) {
+        for (int i = 0; i < tasks.size(); i++) {
+            taskChanged(tasks.get(i), field, oldValues[i]);
+        }
+    }
+
+    default void tasksRemoved(List<Task> tasks) {
+        for (Task task : tasks) {
+            taskRemoved(task);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// One named list: its own data file, task log, indexes and id counter, so
+// ids start at 1 in every list and loading one never touches another.
+// Every method runs under the list's own lock(), the write lock for
+// changes; TaskListRegistry decides when a list is loaded and when it is
+// saved and dropped.
+final class TaskList implements TaskHttpServer.Target, Closeable {
+    private final String name;
+    private final Path dataFile;
+    private final TaskStore tasks = new TaskStore();
+    private final TaskFilterIndex filterIndex = new TaskFilterIndex(tasks);
+    private final TaskOrderIndex orderIndex = new TaskOrderIndex();
+    private final TextSearchIndex searchIndex = new TextSearchIndex(tasks);
+    private final TaskStatistics statistics = new TaskStatistics();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TaskLog log;
+    private int nextId = 1;
+    // Last log record covered by the data file
+    private long savedLsn;
+    // Requests using the list right now; guarded by the registry
+    int users;
+
+    private TaskList(String name, Path dataFile) {
+        this.name = name;
+        this.dataFile = dataFile;
+        tasks.addIndex(filterIndex);
+        tasks.addIndex(orderIndex);
+        tasks.addIndex(searchIndex);
+        tasks.addIndex(statistics);
+    }
+
+    // Reads the data file, if there is one yet, and replays the log after it
+    static TaskList open(String name, Path dataFile, Path logFile) throws IOException {
+        TaskList list = new TaskList(name, dataFile);
+        if (Files.exists(dataFile)) {
+            TaskSnapshot snapshot = TaskSnapshot.read(dataFile);
+            list.tasks.addAll(snapshot.tasks);
+            list.nextId = snapshot.nextId;
+            list.savedLsn = snapshot.lsn;
+        }
+        list.log = new TaskLog(logFile,
+                Integer.getInteger("todo.log.syncEvery", 32),
+                Long.getLong("todo.log.syncIntervalMillis", 1000L),
+                Integer.getInteger("todo.log.compactEvery", 10000));
+        try {
+            list.log.replay(list.savedLsn, list.new Replay());
+        } catch (IOException e) {
+            list.log.close();
+            throw e;
+        }
+        return list;
+    }
+
+    String name() { return name; }
+
+    TaskOrderIndex order() { return orderIndex; }
+
+    ReadWriteLock lock() { return lock; }
+
+    int size() { return tasks.size(); }
+
+    // Writes the data file in view order and drops the log records it covers
+    void save() throws IOException {
+        lock.writeLock().lock();
+        try {
+            long lsn = log.lastLsn();
+            TaskSnapshot.write(dataFile, orderIndex.tasks(), nextId, lsn);
+            log.truncate();
+            savedLsn = lsn;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Saves only if something changed since the list was loaded or saved
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (log.lastLsn() != savedLsn) {
+                save();
+            }
+        } finally {
+            try {
+                log.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public int nextId() { return nextId++; }
+
+    @Override
+    public Task find(int id) { return tasks.findById(id); }
+
+    @Override
+    public void add(Task task) {
+        tasks.add(task);
+        logTask(TaskLog.OP_ADD, task);
+    }
+
+    @Override
+    public void remove(Task task) {
+        tasks.remove(task);
+        logTask(TaskLog.OP_DELETE, task);
+    }
+
+    @Override
+    public void changed(byte op, Task task) { logTask(op, task); }
+
+    @Override
+    public List<Task> filter(String kind, String argument) {
+        return filter(filterIndex, searchIndex, kind, argument);
+    }
+
+    @Override
+    public String metrics() {
+        return TaskMetrics.toPrometheus(tasks.size(), TaskMetrics.estimateTaskBytes(tasks));
+    }
+
+    @Override
+    public String dashboard() { return statistics.toJson(LocalDate.now()); }
+
+    private void logTask(byte op, Task task) {
+        try {
+            log.append(op, task);
+            if (log.needsCompaction()) {
+                save();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write the log of list '" + name + "'", e);
+        }
+    }
+
+    // The filters of an in-memory list; null when kind is not a filter
+    static List<Task> filter(TaskFilterIndex filterIndex, TextSearchIndex searchIndex, String kind, String argument) {
+        switch (kind) {
+            case "completed":
+                return filterIndex.completed();
+            case "pending":
+                return filterIndex.pending();
+            case "category":
+                return filterIndex.byCategory(argument);
+            case "priority":
+                return filterIndex.byPriority(parsePriority(argument));
+            case "today":
+                return filterIndex.dueOn(LocalDate.now());
+            case "overdue":
+                return filterIndex.overdue(LocalDate.now());
+            case "search":
+                return searchIndex.search(argument);
+            default:
+                return null;
+        }
+    }
+
+    static int parsePriority(String argument) {
+        try {
+            return Integer.parseInt(argument.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid priority '" + argument + "'");
+        }
+    }
+
+    // Applies log records to this list while it loads
+    private final class Replay implements TaskLog.Target {
+        public void add(Task task) {
+            tasks.add(task);
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+
+        public void edit(Task task) {
+            Task existing = tasks.findById(task.getId());
+            if (existing != null) {
+                existing.setDescription(task.getDescription());
+                existing.setDueDate(task.getDueDate());
+                existing.setCategory(task.getCategory());
+                existing.setPriority(task.getPriority());
+                existing.setCompleted(task.isCompleted());
+            }
+        }
+
+        public void delete(int id) {
+            Task existing = tasks.findById(id);
+            if (existing != null) {
+                tasks.remove(existing);
+            }
+        }
+
+        public void setCompleted(int id, boolean completed) {
+            Task existing = tasks.findById(id);
+            if (existing != null) {
+                existing.setCompleted(completed);
+            }
+        }
+
+        public void bulk(byte code, String value, int[] ids) {
+            List<Task> selected = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                Task existing = tasks.findById(id);
+                if (existing != null) {
+                    selected.add(existing);
+                }
+            }
+            TaskBulk.apply(tasks, selected, TaskBulk.Action.of(code), value);
+        }
+    }
+}
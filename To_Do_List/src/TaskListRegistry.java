@@ -0,0 +1,198 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+
+// Named task lists kept as <name>.ser and <name>.log in one directory. A
+// list is read on its first acquire, so startup costs nothing however many
+// lists there are. Loaded lists sit in an access-ordered map; past
+// maxLoaded, the least recently used ones nobody is using are saved and
+// dropped from memory, to be read again on their next acquire. Files are
+// read and written outside the registry's monitor; a list that is being
+// loaded or saved is marked busy, and acquiring it waits until that is done.
+class TaskListRegistry implements TaskHttpServer.Lists, Closeable {
+    static final Path DIRECTORY = Paths.get("todo_lists");
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Path directory;
+    private final int maxLoaded;
+    // Served by the main list, so never loaded here a second time
+    private final String reserved;
+    // Guarded by this; iteration order is least recently used first
+    private final LinkedHashMap<String, TaskList> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by this; lists being read or saved outside the monitor
+    private final Set<String> busy = new HashSet<>();
+    private boolean closed;
+
+    TaskListRegistry(Path directory, int maxLoaded, String reserved) {
+        this.directory = directory;
+        this.maxLoaded = Math.max(1, maxLoaded);
+        this.reserved = reserved;
+    }
+
+    static String checkName(String name) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("invalid list name '" + name
+                    + "', use 1-64 letters, digits, '-' or '_'");
+        }
+        return name;
+    }
+
+    static Path dataFile(Path directory, String name) {
+        return directory.resolve(checkName(name) + ".ser");
+    }
+
+    static Path logFile(Path directory, String name) {
+        return directory.resolve(checkName(name) + ".log");
+    }
+
+    // Reads the directory only; no list is loaded
+    @Override
+    public List<String> names() throws IOException {
+        SortedSet<String> names = new TreeSet<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{ser,log}")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    name = name.substring(0, name.length() - 4);
+                    if (NAME.matcher(name).matches()) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public TaskList acquire(String name, boolean create) throws IOException {
+        checkName(name);
+        if (name.equals(reserved)) {
+            throw new IllegalArgumentException("list '" + name + "' is served at /tasks");
+        }
+        synchronized (this) {
+            awaitIdle(name);
+            TaskList list = loaded.get(name);
+            if (list != null) {
+                list.users++;
+                return list;
+            }
+            busy.add(name);
+        }
+        // Read without the monitor, so other lists are served meanwhile
+        TaskList list = null;
+        List<TaskList> evicted = Collections.emptyList();
+        try {
+            Path dataFile = dataFile(directory, name);
+            Path logFile = logFile(directory, name);
+            if (create || Files.exists(dataFile) || Files.exists(logFile)) {
+                Files.createDirectories(directory);
+                list = TaskList.open(name, dataFile, logFile);
+            }
+        } finally {
+            synchronized (this) {
+                if (list != null) {
+                    list.users++;
+                    loaded.put(name, list);
+                    evicted = evictable();
+                }
+                busy.remove(name);
+                notifyAll();
+            }
+        }
+        save(evicted);
+        return list;
+    }
+
+    @Override
+    public void release(TaskList list) {
+        List<TaskList> evicted;
+        synchronized (this) {
+            list.users--;
+            evicted = evictable();
+        }
+        save(evicted);
+    }
+
+    // Waits while name is being loaded or saved by another thread
+    private void awaitIdle(String name) throws IOException {
+        try {
+            while (busy.contains(name)) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for list '" + name + "'");
+        }
+        if (closed) {
+            throw new IOException("lists are closed");
+        }
+    }
+
+    // Takes the least recently used idle lists out of the map and marks them
+    // busy until save() is done with them. Lists in use stay loaded, so the
+    // count may run over until they are released.
+    private List<TaskList> evictable() {
+        List<TaskList> evicted = new ArrayList<>();
+        Iterator<TaskList> lists = loaded.values().iterator();
+        while (loaded.size() > maxLoaded && lists.hasNext()) {
+            TaskList list = lists.next();
+            if (list.users > 0) {
+                continue;
+            }
+            lists.remove();
+            busy.add(list.name());
+            evicted.add(list);
+        }
+        return evicted;
+    }
+
+    // Called without the monitor; saving a large list takes a while
+    private void save(List<TaskList> lists) {
+        for (TaskList list : lists) {
+            try {
+                list.close();
+            } catch (IOException e) {
+                System.out.println("Error saving list '" + list.name() + "': " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    busy.remove(list.name());
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    // Saves every loaded list once loads and saves under way have finished;
+    // acquire fails from here on
+    @Override
+    public void close() {
+        List<TaskList> lists;
+        synchronized (this) {
+            closed = true;
+            boolean interrupted = false;
+            while (!busy.isEmpty()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            lists = new ArrayList<>(loaded.values());
+            loaded.clear();
+            for (TaskList list : lists) {
+                busy.add(list.name());
+            }
+        }
+        save(lists);
+    }
+}
@@ -0,0 +1,6 @@
+// Notified by a Task after one of its fields changes
+interface TaskListener {
+    enum Field { DESCRIPTION, DUE_DATE, CATEGORY, PRIORITY, COMPLETED }
+
+    void taskChanged(Task task, Field field, Object oldValue);
+}
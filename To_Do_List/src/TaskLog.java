@@ -0,0 +1,325 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Append-only operation log. Every add/edit/delete/toggle becomes one small
+// record, so a single change costs O(1) bytes on disk no matter how large the
+// list is. The full snapshot is only rewritten on compaction.
+//
+// Record layout: [int length][int crc32][long lsn][byte op][int id][payload]
+//
+// Strings are written as [int length][UTF-8 bytes] in records whose op has
+// the LONG_STRINGS bit set, which every record written now has; records
+// without it come from older versions and hold writeUTF strings, which
+// cannot exceed 65535 bytes.
+//
+// A bulk change is a run of OP_BULK records, where id is the number of ids
+// in the record and the payload is [byte action][utf value][boolean last]
+// followed by the ids. Replay applies a run only once its last record is
+// read, so a crash in the middle of writing one loses all of it.
+class TaskLog implements Closeable {
+    static final byte OP_ADD = 1;
+    static final byte OP_EDIT = 2;
+    static final byte OP_DELETE = 3;
+    static final byte OP_TOGGLE = 4;
+    static final byte OP_BULK = 5;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int LONG_STRINGS = 0x40;
+    private static final long NO_DUE_DATE = Long.MIN_VALUE;
+    private static final int BULK_IDS_PER_RECORD = 64 * 1024;
+
+    // Receives records during replay
+    interface Target {
+        void add(Task task);
+        void edit(Task task);
+        void delete(int id);
+        void setCompleted(int id, boolean completed);
+        void bulk(byte action, String value, int[] ids);
+    }
+
+    // Ids of a bulk run read so far
+    private static final class BulkRun {
+        int[] ids = new int[0];
+        int count;
+        long start = -1;
+    }
+
+    private final FileChannel channel;
+    private final int syncEvery;
+    private final long syncIntervalMillis;
+    private final int compactThreshold;
+
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    private long lsn;
+    private int unsynced;
+    private long lastSyncTime = System.currentTimeMillis();
+    private int recordsSinceSnapshot;
+
+    // syncEvery: group commit size, records buffered in the OS before fsync.
+    // syncIntervalMillis: an append forces the log once the last sync is this
+    // old. It is only checked on append, so the last records of a quiet
+    // session stay unsynced until the next append, sync() or close().
+    // compactThreshold: records after which the log should be folded into a snapshot.
+    TaskLog(Path path, int syncEvery, long syncIntervalMillis, int compactThreshold) throws IOException {
+        this.syncEvery = Math.max(1, syncEvery);
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.compactThreshold = compactThreshold;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    long lastLsn() { return lsn; }
+
+    boolean needsCompaction() { return recordsSinceSnapshot >= compactThreshold; }
+
+    // Applies every record newer than snapshotLsn to target and positions the
+    // log for appending. A torn or corrupt tail (crash mid-write) is cut off.
+    int replay(long snapshotLsn, Target target) throws IOException {
+        lsn = snapshotLsn;
+        int applied = 0;
+        long validEnd = 0;
+        long fileSize = channel.size();
+        channel.position(0);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel), 64 * 1024));
+        byte[] buffer = new byte[256];
+        BulkRun run = new BulkRun();
+        while (true) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            // A length past the end of the file is a torn or corrupt header
+            if (length <= 0 || length > fileSize - validEnd - HEADER_SIZE) {
+                break;
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            try {
+                in.readFully(buffer, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(buffer, 0, length));
+            long recordLsn = record.readLong();
+            if (run.start < 0) {
+                run.start = validEnd;
+            }
+            if (recordLsn > snapshotLsn) {
+                apply(record, target, run);
+                applied++;
+                recordsSinceSnapshot++;
+            }
+            if (run.count == 0) {
+                run.start = -1;
+            }
+            lsn = Math.max(lsn, recordLsn);
+            validEnd += HEADER_SIZE + length;
+        }
+
+        // An unfinished bulk run is cut off too, or the next one would extend it
+        if (run.start >= 0) {
+            validEnd = run.start;
+        }
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        return applied;
+    }
+
+    private static void apply(DataInputStream record, Target target, BulkRun run) throws IOException {
+        byte op = record.readByte();
+        boolean longStrings = (op & LONG_STRINGS) != 0;
+        op &= ~LONG_STRINGS;
+        int id = record.readInt();
+        switch (op) {
+            case OP_ADD:
+                target.add(readTask(id, record, longStrings));
+                break;
+            case OP_EDIT:
+                target.edit(readTask(id, record, longStrings));
+                break;
+            case OP_DELETE:
+                target.delete(id);
+                break;
+            case OP_TOGGLE:
+                target.setCompleted(id, record.readBoolean());
+                break;
+            case OP_BULK:
+                byte action = record.readByte();
+                String value = readString(record, longStrings);
+                boolean last = record.readBoolean();
+                if (run.ids.length < run.count + id) {
+                    run.ids = Arrays.copyOf(run.ids, Math.max(run.count + id, run.ids.length * 2));
+                }
+                for (int i = 0; i < id; i++) {
+                    run.ids[run.count++] = record.readInt();
+                }
+                if (last) {
+                    target.bulk(action, value, Arrays.copyOf(run.ids, run.count));
+                    run.ids = new int[0];
+                    run.count = 0;
+                }
+                break;
+            default:
+                throw new IOException("Unknown log operation: " + op);
+        }
+    }
+
+    private static Task readTask(int id, DataInputStream in, boolean longStrings) throws IOException {
+        String description = readString(in, longStrings);
+        long epochDay = in.readLong();
+        String category = readString(in, longStrings);
+        int priority = in.readByte();
+        boolean completed = in.readBoolean();
+        LocalDate dueDate = epochDay == NO_DUE_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        Task task = new Task(id, description, dueDate, category, priority);
+        task.setCompleted(completed);
+        return task;
+    }
+
+    private static String readString(DataInputStream in, boolean longStrings) throws IOException {
+        if (!longStrings) {
+            return in.readUTF();
+        }
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Malformed string in task log");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        recordOut.writeInt(bytes.length);
+        recordOut.write(bytes);
+    }
+
+    void append(byte op, Task task) throws IOException {
+        long start = TaskMetrics.start();
+        recordBytes.reset();
+        recordOut.writeLong(lsn + 1);
+        recordOut.writeByte(op | LONG_STRINGS);
+        recordOut.writeInt(task.getId());
+        switch (op) {
+            case OP_ADD:
+            case OP_EDIT:
+                writeString(task.getDescription());
+                recordOut.writeLong(task.getDueDate() != null ? task.getDueDate().toEpochDay() : NO_DUE_DATE);
+                writeString(task.getCategory());
+                recordOut.writeByte(task.getPriority());
+                recordOut.writeBoolean(task.isCompleted());
+                break;
+            case OP_TOGGLE:
+                recordOut.writeBoolean(task.isCompleted());
+                break;
+            case OP_DELETE:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown log operation: " + op);
+        }
+        writeRecord();
+        long now = System.currentTimeMillis();
+        if (unsynced >= syncEvery || now - lastSyncTime >= syncIntervalMillis) {
+            sync();
+        }
+        TaskMetrics.stop(TaskMetrics.Op.LOG_APPEND, start);
+    }
+
+    // Logs one bulk change and syncs it before returning, however many ids
+    // it covers; see the layout notes above
+    void appendBulk(byte action, String value, int[] ids) throws IOException {
+        long start = TaskMetrics.start();
+        int from = 0;
+        do {
+            int count = Math.min(BULK_IDS_PER_RECORD, ids.length - from);
+            recordBytes.reset();
+            recordOut.writeLong(lsn + 1);
+            recordOut.writeByte(OP_BULK | LONG_STRINGS);
+            recordOut.writeInt(count);
+            recordOut.writeByte(action);
+            writeString(value);
+            recordOut.writeBoolean(from + count == ids.length);
+            for (int i = from; i < from + count; i++) {
+                recordOut.writeInt(ids[i]);
+            }
+            writeRecord();
+            from += count;
+        } while (from < ids.length);
+        sync();
+        TaskMetrics.stop(TaskMetrics.Op.LOG_APPEND, start);
+    }
+
+    // Frames what recordOut holds and writes it at the end of the log
+    private void writeRecord() throws IOException {
+        recordOut.flush();
+
+        int length = recordBytes.size();
+        byte[] payload = recordBytes.toByteArray();
+        crc.reset();
+        crc.update(payload, 0, length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.putInt(length).putInt((int) crc.getValue()).put(payload, 0, length).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        lsn++;
+        unsynced++;
+        recordsSinceSnapshot++;
+        TaskMetrics.add(TaskMetrics.Counter.LOG_BYTES_WRITTEN, HEADER_SIZE + length);
+    }
+
+    void sync() throws IOException {
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+        lastSyncTime = System.currentTimeMillis();
+    }
+
+    // Called once a snapshot covering every record up to lastLsn() is on disk
+    void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        unsynced = 0;
+        recordsSinceSnapshot = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide counters and latency histograms for the hot paths. Enabled
+// with -Dtodo.metrics=true; the flag is a static final, so when it is off
+// every start/stop/add call compiles down to nothing.
+//
+//   long start = TaskMetrics.start();
+//   ...
+//   TaskMetrics.stop(TaskMetrics.Op.FIND, start);
+final class TaskMetrics {
+    static final boolean ENABLED = Boolean.getBoolean("todo.metrics");
+
+    enum Op { LOAD, SAVE, VIEW, FILTER, FIND, LOG_APPEND }
+
+    enum Counter { SNAPSHOT_BYTES_READ, SNAPSHOT_BYTES_WRITTEN, LOG_BYTES_WRITTEN }
+
+    private static final LatencyHistogram[] TIMERS = new LatencyHistogram[Op.values().length];
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+    static {
+        for (int i = 0; i < TIMERS.length; i++) {
+            TIMERS[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+
+    private TaskMetrics() {
+    }
+
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    static void stop(Op op, long start) {
+        if (ENABLED) {
+            TIMERS[op.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    static void add(Counter counter, long amount) {
+        if (ENABLED) {
+            COUNTERS[counter.ordinal()].add(amount);
+        }
+    }
+
+    // Rough retained size of the task objects themselves (64-bit JVM with
+    // compressed pointers): the Task, its description, its due date and its
+    // category. Shared category strings are counted once per task, so this
+    // errs high. Index structures are not included.
+    static long estimateTaskBytes(Iterable<Task> tasks) {
+        long total = 0;
+        for (Task task : tasks) {
+            total += 48 + stringBytes(task.getDescription()) + stringBytes(task.getCategory());
+            if (task.getDueDate() != null) {
+                total += 24;
+            }
+        }
+        return total;
+    }
+
+    private static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 256;
+        }
+        long array = 16 + (long) value.length() * (latin1 ? 1 : 2);
+        return 24 + ((array + 7) & ~7L);
+    }
+
+    // Console table: one row per operation that has run, then the counters
+    static String toText(int taskCount, long taskBytes) {
+        StringBuilder out = new StringBuilder(1024);
+        out.append(String.format("%-12s %10s %10s %10s %10s %10s%n", "OPERATION", "COUNT", "MEAN us", "P50 us", "P99 us", "MAX us"));
+        for (Op op : Op.values()) {
+            LatencyHistogram timer = TIMERS[op.ordinal()];
+            if (timer.count() == 0) {
+                continue;
+            }
+            out.append(String.format("%-12s %10d %10.1f %10.1f %10.1f %10.1f%n", name(op), timer.count(),
+                    timer.mean() / 1000, timer.percentile(0.50) / 1000.0, timer.percentile(0.99) / 1000.0,
+                    timer.max() / 1000.0));
+        }
+        out.append('\n');
+        for (Counter counter : Counter.values()) {
+            out.append(String.format("%-24s %14d%n", name(counter), COUNTERS[counter.ordinal()].sum()));
+        }
+        out.append(String.format("%-24s %14d%n", "tasks", taskCount));
+        out.append(String.format("%-24s %14d%n", "task_bytes_estimate", taskBytes));
+        out.append(String.format("%-24s %14d%n", "jvm_heap_used_bytes", heapUsed()));
+        return out.toString();
+    }
+
+    static String toJson(int taskCount, long taskBytes) {
+        StringBuilder out = new StringBuilder(1024);
+        out.append("{\"enabled\":").append(ENABLED).append(",\"operations\":{");
+        boolean first = true;
+        for (Op op : Op.values()) {
+            LatencyHistogram timer = TIMERS[op.ordinal()];
+            out.append(first ? "" : ",").append('"').append(name(op)).append("\":{")
+               .append("\"count\":").append(timer.count())
+               .append(",\"meanNanos\":").append(Math.round(timer.mean()))
+               .append(",\"p50Nanos\":").append(timer.percentile(0.50))
+               .append(",\"p90Nanos\":").append(timer.percentile(0.90))
+               .append(",\"p99Nanos\":").append(timer.percentile(0.99))
+               .append(",\"p999Nanos\":").append(timer.percentile(0.999))
+               .append(",\"maxNanos\":").append(timer.max()).append('}');
+            first = false;
+        }
+        out.append("},\"counters\":{");
+        first = true;
+        for (Counter counter : Counter.values()) {
+            out.append(first ? "" : ",").append('"').append(name(counter)).append("\":")
+               .append(COUNTERS[counter.ordinal()].sum());
+            first = false;
+        }
+        return out.append("},\"tasks\":").append(taskCount)
+                  .append(",\"taskBytesEstimate\":").append(taskBytes)
+                  .append(",\"jvmHeapUsedBytes\":").append(heapUsed()).append('}').toString();
+    }
+
+    // Prometheus text exposition format, latencies as summaries in seconds
+    static String toPrometheus(int taskCount, long taskBytes) {
+        StringBuilder out = new StringBuilder(2048);
+        out.append("# HELP todo_operation_seconds Latency of task operations.\n");
+        out.append("# TYPE todo_operation_seconds summary\n");
+        for (Op op : Op.values()) {
+            LatencyHistogram timer = TIMERS[op.ordinal()];
+            String labels = "operation=\"" + name(op) + "\"";
+            for (double quantile : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+                out.append("todo_operation_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                   .append(seconds(timer.percentile(quantile))).append('\n');
+            }
+            out.append("todo_operation_seconds_sum{").append(labels).append("} ")
+               .append(seconds(timer.sum())).append('\n');
+            out.append("todo_operation_seconds_count{").append(labels).append("} ").append(timer.count()).append('\n');
+        }
+        for (Counter counter : Counter.values()) {
+            String metric = "todo_" + name(counter) + "_total";
+            out.append("# TYPE ").append(metric).append(" counter\n");
+            out.append(metric).append(' ').append(COUNTERS[counter.ordinal()].sum()).append('\n');
+        }
+        out.append("# TYPE todo_tasks gauge\ntodo_tasks ").append(taskCount).append('\n');
+        out.append("# TYPE todo_task_bytes_estimate gauge\ntodo_task_bytes_estimate ").append(taskBytes).append('\n');
+        out.append("# TYPE todo_jvm_heap_used_bytes gauge\ntodo_jvm_heap_used_bytes ").append(heapUsed()).append('\n');
+        return out.toString();
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static long heapUsed() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
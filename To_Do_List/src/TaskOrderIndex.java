@@ -0,0 +1,92 @@
+import java.time.LocalDate;
+import java.util.*;
+
+// Keeps every task in view order (priority, due date with none last, id) so
+// viewTasks is a plain in-order walk. Each change costs one O(log n) removal
+// and insertion instead of a full re-sort.
+class TaskOrderIndex implements TaskIndex {
+    private static final int DUE_BITS = 28;
+    private static final long DUE_MAX = (1L << DUE_BITS) - 1;
+    private static final long DUE_BIAS = 1L << (DUE_BITS - 1);
+
+    private final TreeMap<Long, Task> ordered = new TreeMap<>();
+
+    // Packs the view order into one long: 3 bits of priority, 28 bits of
+    // biased epoch day (all ones meaning no due date) and the 32-bit id
+    static long sortKey(int priority, long epochDay, boolean hasDueDate, int id) {
+        long due = hasDueDate ? Math.max(0, Math.min(DUE_MAX - 1, epochDay + DUE_BIAS)) : DUE_MAX;
+        return ((long) (priority & 0x07) << (32 + DUE_BITS)) | (due << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    static long sortKey(int priority, LocalDate dueDate, int id) {
+        return sortKey(priority, dueDate != null ? dueDate.toEpochDay() : 0, dueDate != null, id);
+    }
+
+    static long sortKey(Task task) {
+        return sortKey(task.getPriority(), task.getDueDate(), task.getId());
+    }
+
+    static long sortKey(TaskRecord task) {
+        return sortKey(task.priority(), task.dueDate(), task.id());
+    }
+
+    int size() { return ordered.size(); }
+
+    // Tasks in view order; a live view, do not modify the store while iterating
+    Collection<Task> tasks() {
+        return Collections.unmodifiableCollection(ordered.values());
+    }
+
+    // Up to max tasks in view order (reversed when descending) that come after
+    // the task with key afterKey, or from the start when afterKey is null,
+    // skipping the first skip of them. Lets callers page without a copy.
+    List<Task> after(Long afterKey, int skip, int max, boolean descending) {
+        NavigableMap<Long, Task> view = descending ? ordered.descendingMap() : ordered;
+        if (afterKey != null) {
+            view = view.tailMap(afterKey, false);
+        }
+        List<Task> page = new ArrayList<>(Math.min(max, 1024));
+        for (Task task : view.values()) {
+            if (skip > 0) {
+                skip--;
+            } else if (page.size() < max) {
+                page.add(task);
+            } else {
+                break;
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        ordered.put(sortKey(task), task);
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        ordered.remove(sortKey(task));
+    }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        long oldKey;
+        switch (field) {
+            case PRIORITY:
+                oldKey = sortKey((Integer) oldValue, task.getDueDate(), task.getId());
+                break;
+            case DUE_DATE:
+                oldKey = sortKey(task.getPriority(), (LocalDate) oldValue, task.getId());
+                break;
+            default:
+                return;
+        }
+        ordered.remove(oldKey);
+        ordered.put(sortKey(task), task);
+    }
+
+    @Override
+    public void cleared() {
+        ordered.clear();
+    }
+}
@@ -0,0 +1,18 @@
+import java.time.LocalDate;
+
+// Immutable copy of a task, safe to hand to other threads. version is the
+// task's version when the copy was taken.
+record TaskRecord(int id, String description, LocalDate dueDate, String category,
+                  int priority, boolean completed, long version) {
+
+    static TaskRecord of(Task task) {
+        return new TaskRecord(task.getId(), task.getDescription(), task.getDueDate(),
+                task.getCategory(), task.getPriority(), task.isCompleted(), task.getVersion());
+    }
+
+    Task toTask() {
+        Task task = new Task(id, description, dueDate, category, priority);
+        task.setCompleted(completed);
+        return task;
+    }
+}
@@ -0,0 +1,198 @@
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+
+// Due-date reminders. Pending tasks with a due date wait in a map from date
+// to ids, which works as a timer wheel with one slot per day: scheduling,
+// rescheduling and cancelling cost O(log d) for d distinct due dates, and a
+// single timer sleeps until the earliest slot falls due. When it fires, only
+// the due slots are read, so neither side ever scans the list.
+//
+// A slot fires at the start of its day minus the lead time. Tasks that are
+// completed, deleted or moved to another date leave their slot on the
+// spot; a task reopened or moved into the past fires on the next wake-up.
+class TaskReminders implements TaskIndex, Closeable {
+    private static final int LISTED = 5;
+
+    // Tasks due on one date; first holds up to LISTED of them
+    record Reminder(LocalDate dueDate, int count, List<TaskRecord> first) {
+    }
+
+    // Called on the reminder thread without the lock held
+    interface Sink {
+        void remind(List<Reminder> reminders);
+    }
+
+    private final TaskStore store;
+    // The store's write lock, as firing empties slots the index callbacks also change
+    private final Lock lock;
+    private final Sink sink;
+    private final long leadMillis;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "todo-reminders");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by lock
+    private final NavigableMap<LocalDate, IntHashSet> slots = new TreeMap<>();
+    private boolean started;
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt;
+
+    TaskReminders(TaskStore store, Lock lock, Sink sink, long leadMillis) {
+        this.store = store;
+        this.lock = lock;
+        this.sink = sink;
+        this.leadMillis = Math.max(0, leadMillis);
+    }
+
+    void start() {
+        lock.lock();
+        try {
+            started = true;
+            scheduleWakeup();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Pending reminders, not counting slots that have already fired
+    int scheduled() {
+        lock.lock();
+        try {
+            int count = 0;
+            for (IntHashSet ids : slots.values()) {
+                count += ids.size();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long fireAt(LocalDate dueDate) {
+        return dueDate.atStartOfDay(zone).toInstant().toEpochMilli() - leadMillis;
+    }
+
+    private void schedule(LocalDate dueDate, int id) {
+        if (dueDate == null) {
+            return;
+        }
+        slots.computeIfAbsent(dueDate, key -> new IntHashSet()).add(id);
+        if (started && dueDate.equals(slots.firstKey())) {
+            scheduleWakeup();
+        }
+    }
+
+    // A wake-up left for an emptied slot finds nothing due and re-arms
+    private void cancel(LocalDate dueDate, int id) {
+        if (dueDate == null) {
+            return;
+        }
+        IntHashSet ids = slots.get(dueDate);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            slots.remove(dueDate);
+        }
+    }
+
+    // Keeps one timer armed for the earliest slot, moving it earlier if needed
+    private void scheduleWakeup() {
+        if (slots.isEmpty()) {
+            return;
+        }
+        long at = fireAt(slots.firstKey());
+        if (wakeup != null) {
+            if (at >= wakeupAt || !wakeup.cancel(false)) {
+                return;
+            }
+        }
+        wakeupAt = at;
+        wakeup = executor.schedule(this::fire, Math.max(0, at - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void fire() {
+        List<Reminder> due = new ArrayList<>();
+        lock.lock();
+        try {
+            wakeup = null;
+            long now = System.currentTimeMillis();
+            while (!slots.isEmpty() && fireAt(slots.firstKey()) <= now) {
+                Map.Entry<LocalDate, IntHashSet> slot = slots.pollFirstEntry();
+                List<TaskRecord> first = new ArrayList<>(LISTED);
+                slot.getValue().forEach(id -> {
+                    if (first.size() < LISTED) {
+                        first.add(TaskRecord.of(store.findById(id)));
+                    }
+                });
+                first.sort(Comparator.comparingInt(TaskRecord::id));
+                due.add(new Reminder(slot.getKey(), slot.getValue().size(), first));
+            }
+            if (started) {
+                scheduleWakeup();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!due.isEmpty()) {
+            sink.remind(due);
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            started = false;
+            if (wakeup != null) {
+                wakeup.cancel(false);
+                wakeup = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        if (!task.isCompleted()) {
+            schedule(task.getDueDate(), task.getId());
+        }
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        cancel(task.getDueDate(), task.getId());
+    }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        switch (field) {
+            case DUE_DATE:
+                if (!task.isCompleted()) {
+                    cancel((LocalDate) oldValue, task.getId());
+                    schedule(task.getDueDate(), task.getId());
+                }
+                break;
+            case COMPLETED:
+                if (task.isCompleted()) {
+                    cancel(task.getDueDate(), task.getId());
+                } else {
+                    schedule(task.getDueDate(), task.getId());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void cleared() {
+        slots.clear();
+    }
+}
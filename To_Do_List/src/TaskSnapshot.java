@@ -0,0 +1,398 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Compact binary snapshot of the task list, read and written through a
+// FileChannel with a large direct buffer.
+//
+// Layout (version 2):
+//   int magic, byte version, long lsn, int nextId, varint count
+//   varint categories, then each category as varint length + UTF-8 bytes
+//   per task: varint id, byte flags (bits 0-2 priority, bit 3 completed,
+//             bit 4 has due date), [int epoch day], varint category index,
+//             varint length + UTF-8 description
+//   int crc32 of everything after the version byte
+//   index: count longs with each record's file offset in record order,
+//          then count longs (id << 32 | record number) sorted by id
+//   long file offset of the index
+//
+// The index lets MappedTaskFile open a snapshot without decoding it.
+// Version 1 files are identical up to the checksum and have no index.
+//
+// Files written by the original Java serialization format are still read so
+// existing data migrates on the next save.
+class TaskSnapshot {
+    static final int MAGIC = 0x54444C53; // "TDLS"
+    static final byte VERSION = 2;
+    static final byte VERSION_WITHOUT_INDEX = 1;
+
+    static final int PRIORITY_MASK = 0x07;
+    static final int FLAG_COMPLETED = 0x08;
+    static final int FLAG_DUE_DATE = 0x10;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int LEGACY_MAGIC = 0xACED;
+
+    final List<Task> tasks;
+    final int nextId;
+    final long lsn;
+    final boolean legacy;
+
+    private TaskSnapshot(List<Task> tasks, int nextId, long lsn, boolean legacy) {
+        this.tasks = tasks;
+        this.nextId = nextId;
+        this.lsn = lsn;
+        this.legacy = legacy;
+    }
+
+    static void write(Path target, Collection<Task> tasks, int nextId, long lsn) throws IOException {
+        write(target, tasks, tasks.size(), nextId, lsn);
+    }
+
+    // Writes to a temporary file, forces it to disk and renames it over target.
+    // tasks is iterated twice, so a lazily decoded source never has to be
+    // held in memory as a whole.
+    static void write(Path target, Iterable<Task> tasks, int count, int nextId, long lsn) throws IOException {
+        long start = TaskMetrics.start();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Map<String, Integer> categoryIds = new HashMap<>();
+        List<String> categories = new ArrayList<>();
+        for (Task task : tasks) {
+            String category = task.getCategory() != null ? task.getCategory() : "";
+            if (!categoryIds.containsKey(category)) {
+                categoryIds.put(category, categories.size());
+                categories.add(category);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(channel);
+            out.buffer.putInt(MAGIC);
+            out.buffer.put(VERSION);
+            out.startChecksum();
+            out.ensure(12);
+            out.buffer.putLong(lsn);
+            out.buffer.putInt(nextId);
+            out.putVarint(count);
+
+            out.putVarint(categories.size());
+            for (String category : categories) {
+                out.putString(category);
+            }
+
+            long[] offsets = new long[count];
+            long[] idIndex = new long[count];
+            int written = 0;
+            for (Task task : tasks) {
+                if (written == count) {
+                    throw new IOException("More tasks than the declared count of " + count);
+                }
+                offsets[written] = out.position();
+                idIndex[written] = ((long) task.getId() << 32) | written;
+                written++;
+                out.putVarint(task.getId());
+                int flags = task.getPriority() & PRIORITY_MASK;
+                if (task.isCompleted()) {
+                    flags |= FLAG_COMPLETED;
+                }
+                if (task.getDueDate() != null) {
+                    flags |= FLAG_DUE_DATE;
+                }
+                out.ensure(5);
+                out.buffer.put((byte) flags);
+                if (task.getDueDate() != null) {
+                    out.buffer.putInt((int) task.getDueDate().toEpochDay());
+                }
+                String category = task.getCategory() != null ? task.getCategory() : "";
+                out.putVarint(categoryIds.get(category));
+                out.putString(task.getDescription());
+            }
+            if (written != count) {
+                throw new IOException("Expected " + count + " tasks but found " + written);
+            }
+            out.endChecksum();
+
+            Arrays.sort(idIndex);
+            long indexOffset = out.position();
+            for (long offset : offsets) {
+                out.ensure(8);
+                out.buffer.putLong(offset);
+            }
+            for (long entry : idIndex) {
+                out.ensure(8);
+                out.buffer.putLong(entry);
+            }
+            out.ensure(8);
+            out.buffer.putLong(indexOffset);
+            out.drain();
+            channel.force(true);
+            TaskMetrics.add(TaskMetrics.Counter.SNAPSHOT_BYTES_WRITTEN, out.position());
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        TaskMetrics.stop(TaskMetrics.Op.SAVE, start);
+    }
+
+    static TaskSnapshot read(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            TaskMetrics.add(TaskMetrics.Counter.SNAPSHOT_BYTES_READ, channel.size());
+            Reader in = new Reader(channel);
+            if (!in.fill(4)) {
+                throw new IOException("Snapshot file is truncated");
+            }
+            if ((in.buffer.getShort(in.buffer.position()) & 0xFFFF) == LEGACY_MAGIC) {
+                return readLegacy(source);
+            }
+            if (in.buffer.getInt() != MAGIC) {
+                throw new IOException("Not a task snapshot file");
+            }
+            in.require(1);
+            byte version = in.buffer.get();
+            if (version != VERSION && version != VERSION_WITHOUT_INDEX) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            in.startChecksum();
+            in.require(12);
+            long lsn = in.buffer.getLong();
+            int nextId = in.buffer.getInt();
+            // Counts and lengths are checked against the file size before
+            // anything is allocated, so damage fails as an IOException
+            int count = in.getLength();
+
+            String[] categories = new String[in.getLength()];
+            for (int i = 0; i < categories.length; i++) {
+                categories[i] = in.getString();
+            }
+
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.getVarint();
+                in.require(1);
+                int flags = in.buffer.get();
+                LocalDate dueDate = null;
+                if ((flags & FLAG_DUE_DATE) != 0) {
+                    in.require(4);
+                    dueDate = LocalDate.ofEpochDay(in.buffer.getInt());
+                }
+                int categoryIndex = in.getVarint();
+                if (categoryIndex < 0 || categoryIndex >= categories.length) {
+                    throw corrupt();
+                }
+                String category = categories[categoryIndex];
+                String description = in.getString();
+                Task task = new Task(id, description, dueDate, category, flags & PRIORITY_MASK);
+                task.setCompleted((flags & FLAG_COMPLETED) != 0);
+                tasks.add(task);
+            }
+            int expected = (int) in.checksum();
+            in.require(4);
+            if (in.buffer.getInt() != expected) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            return new TaskSnapshot(tasks, nextId, lsn, false);
+        }
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Snapshot file is corrupt");
+    }
+
+    // The pre-binary format: an ObjectOutputStream holding ArrayList<Task>,
+    // nextId and, for files written alongside the task log, the covered lsn
+    @SuppressWarnings("unchecked")
+    private static TaskSnapshot readLegacy(Path source) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            List<Task> tasks = (List<Task>) ois.readObject();
+            int nextId = ois.readInt();
+            long lsn = 0L;
+            try {
+                lsn = ois.readLong();
+            } catch (EOFException e) {
+                // Written before the task log existed
+            }
+            return new TaskSnapshot(new ArrayList<>(tasks), nextId, lsn, true);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unreadable legacy task file", e);
+        }
+    }
+
+    private static final class Writer {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final CRC32 crc = new CRC32();
+        int checksumFrom = -1;
+        long flushed;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void startChecksum() {
+            checksumFrom = buffer.position();
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        void drain() throws IOException {
+            updateChecksum();
+            buffer.flip();
+            flushed += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            if (checksumFrom >= 0) {
+                checksumFrom = 0;
+            }
+        }
+
+        private void updateChecksum() {
+            if (checksumFrom >= 0 && buffer.position() > checksumFrom) {
+                ByteBuffer slice = buffer.duplicate();
+                slice.position(checksumFrom).limit(buffer.position());
+                crc.update(slice);
+                checksumFrom = buffer.position();
+            }
+        }
+
+        void putVarint(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        void endChecksum() throws IOException {
+            updateChecksum();
+            checksumFrom = -1;
+            ensure(4);
+            buffer.putInt((int) crc.getValue());
+        }
+    }
+
+    private static final class Reader {
+        final FileChannel channel;
+        final long size;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final CRC32 crc = new CRC32();
+        int checksumFrom = -1;
+        byte[] scratch = new byte[256];
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            buffer.limit(0);
+        }
+
+        void startChecksum() {
+            checksumFrom = buffer.position();
+        }
+
+        long checksum() {
+            updateChecksum();
+            checksumFrom = -1;
+            return crc.getValue();
+        }
+
+        private void updateChecksum() {
+            if (checksumFrom >= 0 && buffer.position() > checksumFrom) {
+                ByteBuffer slice = buffer.duplicate();
+                slice.position(checksumFrom).limit(buffer.position());
+                crc.update(slice);
+                checksumFrom = buffer.position();
+            }
+        }
+
+        // Makes at least the given number of bytes available; false at end of file
+        boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            updateChecksum();
+            buffer.compact();
+            if (checksumFrom >= 0) {
+                checksumFrom = 0;
+            }
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    return false;
+                }
+            }
+            buffer.flip();
+            return true;
+        }
+
+        void require(int bytes) throws IOException {
+            if (!fill(bytes)) {
+                throw new EOFException("Snapshot file is truncated");
+            }
+        }
+
+        int getVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                require(1);
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in snapshot");
+        }
+
+        // A count or byte length; every counted item takes at least a byte
+        int getLength() throws IOException {
+            int length = getVarint();
+            if (length < 0 || length > size) {
+                throw corrupt();
+            }
+            return length;
+        }
+
+        String getString() throws IOException {
+            int length = getLength();
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            int offset = 0;
+            while (offset < length) {
+                require(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(scratch, offset, chunk);
+                offset += chunk;
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
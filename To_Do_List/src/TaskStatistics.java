@@ -0,0 +1,283 @@
+import java.time.LocalDate;
+import java.util.*;
+
+// Running totals for the summary line and the dashboard, kept up to date on
+// every change so reading them never scans the list. Due dates are counted
+// per distinct date; the buckets relative to today are derived from those
+// counts and rebuilt when the date has moved on since the last read, which
+// costs one pass over the distinct dates once a day.
+class TaskStatistics implements TaskIndex {
+    private static final int MAX_PRIORITY = 3;
+    private static final int WEEK_DAYS = 7;
+
+    // Due-date buckets relative to today. Every task is in exactly one;
+    // overdue in the filter sense is the pending part of PAST.
+    enum DueBucket { PAST, TODAY, NEXT_7_DAYS, LATER, NO_DUE_DATE }
+
+    static final class Counts {
+        private final String name;
+        private int total;
+        private int completed;
+
+        Counts(String name) {
+            this.name = name;
+        }
+
+        String name() { return name; }
+
+        int total() { return total; }
+
+        int completed() { return completed; }
+
+        int pending() { return total - completed; }
+
+        private void add(int sign, boolean isCompleted) {
+            total += sign;
+            if (isCompleted) {
+                completed += sign;
+            }
+        }
+
+        private void reset() {
+            total = 0;
+            completed = 0;
+        }
+    }
+
+    private final Counts all = new Counts("all");
+    private final Counts[] byPriority = new Counts[MAX_PRIORITY + 1];
+    // Keyed by folded category, named after the first spelling seen
+    private final Map<String, Counts> byCategory = new HashMap<>();
+    private final NavigableMap<LocalDate, Counts> byDueDate = new TreeMap<>();
+    private final Counts[] byDueBucket = new Counts[DueBucket.values().length];
+    private LocalDate today = LocalDate.now();
+
+    TaskStatistics() {
+        for (int i = 0; i < byPriority.length; i++) {
+            byPriority[i] = new Counts(String.valueOf(i));
+        }
+        for (DueBucket bucket : DueBucket.values()) {
+            byDueBucket[bucket.ordinal()] = new Counts(bucket.name());
+        }
+    }
+
+    private static int priorityBucket(int priority) {
+        return priority >= 1 && priority <= MAX_PRIORITY ? priority : 0;
+    }
+
+    Counts total() {
+        return all;
+    }
+
+    Counts byPriority(int priority) {
+        return byPriority[priorityBucket(priority)];
+    }
+
+    // Sorted by name; one entry per category, not per task
+    List<Counts> byCategory() {
+        List<Counts> result = new ArrayList<>(byCategory.values());
+        result.sort(Comparator.comparing(counts -> counts.name().toLowerCase(Locale.ROOT)));
+        return result;
+    }
+
+    Counts byDueBucket(DueBucket bucket, LocalDate today) {
+        rollTo(today);
+        return byDueBucket[bucket.ordinal()];
+    }
+
+    // Same as filterIndex.overdue(today).size()
+    int overdue(LocalDate today) {
+        return byDueBucket(DueBucket.PAST, today).pending();
+    }
+
+    // Same as filterIndex.dueOn(today).size()
+    int dueToday(LocalDate today) {
+        return byDueBucket(DueBucket.TODAY, today).total();
+    }
+
+    // Console dashboard; only the category section grows, with the number of categories
+    String toText(LocalDate today) {
+        rollTo(today);
+        StringBuilder out = new StringBuilder(1024);
+        out.append(String.format("Total: %d | Completed: %d | Pending: %d | Overdue: %d | Due today: %d%n",
+                all.total, all.completed, all.pending(), overdue(today), dueToday(today)));
+        out.append(String.format("%n%-16s %10s %10s %10s%n", "PRIORITY", "TOTAL", "COMPLETED", "PENDING"));
+        for (int priority = 1; priority <= MAX_PRIORITY; priority++) {
+            appendRow(out, TaskTableRenderer.priorityLabel(priority), byPriority[priority]);
+        }
+        out.append(String.format("%n%-16s %10s %10s %10s%n", "DUE", "TOTAL", "COMPLETED", "PENDING"));
+        String[] dueLabels = { "Past", "Today", "Next 7 days", "Later", "No due date" };
+        for (DueBucket bucket : DueBucket.values()) {
+            appendRow(out, dueLabels[bucket.ordinal()], byDueBucket[bucket.ordinal()]);
+        }
+        out.append(String.format("%n%-16s %10s %10s %10s%n", "CATEGORY", "TOTAL", "COMPLETED", "PENDING"));
+        for (Counts counts : byCategory()) {
+            appendRow(out, counts.name, counts);
+        }
+        return out.toString();
+    }
+
+    private static void appendRow(StringBuilder out, String label, Counts counts) {
+        out.append(String.format("%-16s %10d %10d %10d%n", label, counts.total, counts.completed, counts.pending()));
+    }
+
+    // {"total":{"total":..,"completed":..,"pending":..},"overdue":..,"dueToday":..,
+    //  "priority":{"1":{..},..},"due":{"past":{..},..},"categories":{"Work":{..},..}}
+    String toJson(LocalDate today) {
+        rollTo(today);
+        StringBuilder out = new StringBuilder(1024);
+        out.append("{\"total\":");
+        appendJson(out, all);
+        out.append(",\"overdue\":").append(overdue(today))
+           .append(",\"dueToday\":").append(dueToday(today))
+           .append(",\"priority\":{");
+        for (int priority = 1; priority <= MAX_PRIORITY; priority++) {
+            out.append(priority == 1 ? "\"" : ",\"").append(priority).append("\":");
+            appendJson(out, byPriority[priority]);
+        }
+        out.append("},\"due\":{");
+        for (DueBucket bucket : DueBucket.values()) {
+            out.append(bucket.ordinal() == 0 ? "" : ",");
+            Json.appendString(out, bucket.name().toLowerCase(Locale.ROOT)).append(':');
+            appendJson(out, byDueBucket[bucket.ordinal()]);
+        }
+        out.append("},\"categories\":{");
+        boolean first = true;
+        for (Counts counts : byCategory()) {
+            out.append(first ? "" : ",");
+            Json.appendString(out, counts.name).append(':');
+            appendJson(out, counts);
+            first = false;
+        }
+        return out.append("}}").toString();
+    }
+
+    private static void appendJson(StringBuilder out, Counts counts) {
+        out.append("{\"total\":").append(counts.total)
+           .append(",\"completed\":").append(counts.completed)
+           .append(",\"pending\":").append(counts.pending()).append('}');
+    }
+
+    private DueBucket bucketOf(LocalDate dueDate) {
+        if (dueDate == null) {
+            return DueBucket.NO_DUE_DATE;
+        }
+        if (dueDate.isBefore(today)) {
+            return DueBucket.PAST;
+        }
+        if (dueDate.equals(today)) {
+            return DueBucket.TODAY;
+        }
+        return dueDate.isAfter(today.plusDays(WEEK_DAYS)) ? DueBucket.LATER : DueBucket.NEXT_7_DAYS;
+    }
+
+    private void rollTo(LocalDate date) {
+        if (date.equals(today)) {
+            return;
+        }
+        today = date;
+        Counts noDueDate = byDueBucket[DueBucket.NO_DUE_DATE.ordinal()];
+        for (Counts counts : byDueBucket) {
+            if (counts != noDueDate) {
+                counts.reset();
+            }
+        }
+        for (Map.Entry<LocalDate, Counts> entry : byDueDate.entrySet()) {
+            Counts bucket = byDueBucket[bucketOf(entry.getKey()).ordinal()];
+            bucket.total += entry.getValue().total;
+            bucket.completed += entry.getValue().completed;
+        }
+    }
+
+    private void countCategory(String category, int sign, boolean isCompleted) {
+        String key = TaskFilterIndex.foldCategory(category);
+        Counts counts = byCategory.get(key);
+        if (counts == null) {
+            counts = new Counts(category);
+            byCategory.put(key, counts);
+        }
+        counts.add(sign, isCompleted);
+        if (counts.total == 0) {
+            byCategory.remove(key);
+        }
+    }
+
+    private void countDueDate(LocalDate dueDate, int sign, boolean isCompleted) {
+        byDueBucket[bucketOf(dueDate).ordinal()].add(sign, isCompleted);
+        if (dueDate == null) {
+            return;
+        }
+        Counts counts = byDueDate.computeIfAbsent(dueDate, key -> new Counts(null));
+        counts.add(sign, isCompleted);
+        if (counts.total == 0) {
+            byDueDate.remove(dueDate);
+        }
+    }
+
+    private void count(Task task, int sign, boolean isCompleted) {
+        all.add(sign, isCompleted);
+        byPriority[priorityBucket(task.getPriority())].add(sign, isCompleted);
+        countCategory(task.getCategory(), sign, isCompleted);
+        countDueDate(task.getDueDate(), sign, isCompleted);
+    }
+
+    // Moves the task between completed and pending without touching totals
+    private void complete(Task task, int sign) {
+        all.completed += sign;
+        byPriority[priorityBucket(task.getPriority())].completed += sign;
+        byCategory.get(TaskFilterIndex.foldCategory(task.getCategory())).completed += sign;
+        byDueBucket[bucketOf(task.getDueDate()).ordinal()].completed += sign;
+        if (task.getDueDate() != null) {
+            byDueDate.get(task.getDueDate()).completed += sign;
+        }
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        count(task, 1, task.isCompleted());
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        count(task, -1, task.isCompleted());
+    }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        boolean isCompleted = task.isCompleted();
+        switch (field) {
+            case CATEGORY:
+                countCategory((String) oldValue, -1, isCompleted);
+                countCategory(task.getCategory(), 1, isCompleted);
+                break;
+            case PRIORITY:
+                byPriority[priorityBucket((Integer) oldValue)].add(-1, isCompleted);
+                byPriority[priorityBucket(task.getPriority())].add(1, isCompleted);
+                break;
+            case DUE_DATE:
+                countDueDate((LocalDate) oldValue, -1, isCompleted);
+                countDueDate(task.getDueDate(), 1, isCompleted);
+                break;
+            case COMPLETED:
+                if ((Boolean) oldValue != isCompleted) {
+                    complete(task, isCompleted ? 1 : -1);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void cleared() {
+        all.reset();
+        for (Counts counts : byPriority) {
+            counts.reset();
+        }
+        byCategory.clear();
+        byDueDate.clear();
+        for (Counts counts : byDueBucket) {
+            counts.reset();
+        }
+    }
+}
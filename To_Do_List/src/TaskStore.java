@@ -0,0 +1,165 @@
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Task list with an id index kept alongside it, so lookups by id are O(1)
+// instead of a scan of the whole list. Removal swaps the last task into the
+// freed slot, so list order is insertion order only until the first removal;
+// TaskOrderIndex owns the display order. Registered secondary indexes are
+// told about every add, remove and field change.
+class TaskStore implements Iterable<Task>, TaskListener {
+    private final List<Task> tasks = new ArrayList<>();
+    private final IntTaskMap byId = new IntTaskMap();
+    private final List<TaskIndex> indexes = new ArrayList<>();
+    // Set while updateAll changes tasks; their own change events are ignored
+    private volatile boolean bulk;
+
+    void addIndex(TaskIndex index) {
+        indexes.add(index);
+        for (Task task : tasks) {
+            index.taskAdded(task);
+        }
+    }
+
+    void removeIndex(TaskIndex index) {
+        indexes.remove(index);
+    }
+
+    void add(Task task) {
+        Task previous = byId.put(task.getId(), task);
+        if (previous != null) {
+            unlink(previous);
+            detach(previous);
+        }
+        task.setStoreSlot(tasks.size());
+        tasks.add(task);
+        task.setListener(this);
+        for (TaskIndex index : indexes) {
+            index.taskAdded(task);
+        }
+    }
+
+    void addAll(Collection<Task> newTasks) {
+        for (Task task : newTasks) {
+            add(task);
+        }
+    }
+
+    boolean remove(Task task) {
+        if (byId.get(task.getId()) != task) {
+            return false;
+        }
+        byId.remove(task.getId());
+        unlink(task);
+        detach(task);
+        return true;
+    }
+
+    private void unlink(Task task) {
+        int slot = task.getStoreSlot();
+        Task last = tasks.remove(tasks.size() - 1);
+        if (last != task) {
+            tasks.set(slot, last);
+            last.setStoreSlot(slot);
+        }
+    }
+
+    private void detach(Task task) {
+        task.setListener(null);
+        for (TaskIndex index : indexes) {
+            index.taskRemoved(task);
+        }
+    }
+
+    // Applies change, which may only touch the given field, to every task in
+    // parallel. Indexes are then brought up to date in one bulk call each,
+    // with the indexes updated concurrently instead of once per task.
+    void updateAll(List<Task> selected, Field field, Consumer<Task> change) {
+        Object[] oldValues = new Object[selected.size()];
+        bulk = true;
+        try {
+            IntStream.range(0, selected.size()).parallel().forEach(i -> {
+                Task task = selected.get(i);
+                oldValues[i] = valueOf(task, field);
+                change.accept(task);
+            });
+        } finally {
+            bulk = false;
+        }
+        List<Task> changed = new ArrayList<>(selected.size());
+        List<Object> changedOld = new ArrayList<>(selected.size());
+        for (int i = 0; i < oldValues.length; i++) {
+            Task task = selected.get(i);
+            if (!Objects.equals(oldValues[i], valueOf(task, field))) {
+                changed.add(task);
+                changedOld.add(oldValues[i]);
+            }
+        }
+        Object[] old = changedOld.toArray();
+        indexes.parallelStream().forEach(index -> index.tasksChanged(changed, field, old));
+    }
+
+    // Removes every task given that is in the store, then updates each index once
+    void removeAll(List<Task> selected) {
+        List<Task> removed = new ArrayList<>(selected.size());
+        for (Task task : selected) {
+            if (byId.get(task.getId()) == task) {
+                byId.remove(task.getId());
+                unlink(task);
+                task.setListener(null);
+                removed.add(task);
+            }
+        }
+        indexes.parallelStream().forEach(index -> index.tasksRemoved(removed));
+    }
+
+    private static Object valueOf(Task task, Field field) {
+        switch (field) {
+            case DESCRIPTION: return task.getDescription();
+            case DUE_DATE: return task.getDueDate();
+            case CATEGORY: return task.getCategory();
+            case PRIORITY: return task.getPriority();
+            default: return task.isCompleted();
+        }
+    }
+
+    Task findById(int id) {
+        return byId.get(id);
+    }
+
+    void clear() {
+        for (Task task : tasks) {
+            task.setListener(null);
+        }
+        tasks.clear();
+        byId.clear();
+        for (TaskIndex index : indexes) {
+            index.cleared();
+        }
+    }
+
+    Task get(int index) { return tasks.get(index); }
+
+    int size() { return tasks.size(); }
+
+    boolean isEmpty() { return tasks.isEmpty(); }
+
+    Stream<Task> stream() { return tasks.stream(); }
+
+    // Read-only view in list order
+    List<Task> asList() { return Collections.unmodifiableList(tasks); }
+
+    @Override
+    public Iterator<Task> iterator() { return asList().iterator(); }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        if (bulk) {
+            return;
+        }
+        for (TaskIndex index : indexes) {
+            index.taskChanged(task, field, oldValue);
+        }
+    }
+}
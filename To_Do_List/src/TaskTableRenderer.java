@@ -0,0 +1,106 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+// Renders task tables without per-row String.format calls or a fresh
+// DateTimeFormatter per task. Rows are padded into one reused StringBuilder
+// and written through a large buffered writer that is flushed once per
+// table instead of once per line.
+class TaskTableRenderer {
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private static final int[] WIDTHS = { 4, 50, 12, 15, 10 };
+    private static final String[] PRIORITY_LABELS = { "", "HIGH", "MEDIUM", "LOW" };
+    private static final String SEPARATOR =
+            "---------------------------------------------------------------------------------------------------";
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(128);
+
+    // Formatting a date is far more expensive than a lookup, and most lists
+    // share a small set of due dates
+    private LocalDate lastDate;
+    private String lastDateText;
+
+    TaskTableRenderer(OutputStream stream) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream), 64 * 1024);
+    }
+
+    static String priorityLabel(int priority) {
+        return priority >= 1 && priority < PRIORITY_LABELS.length ? PRIORITY_LABELS[priority] : "";
+    }
+
+    // Same text as Task.toString(), built into the given builder
+    static void formatRow(Task task, StringBuilder target, String dueDateText) {
+        pad(target, task.isCompleted() ? "[✓]" : "[ ]", WIDTHS[0]).append(' ');
+        pad(target, task.getDescription(), WIDTHS[1]).append(' ');
+        pad(target, dueDateText, WIDTHS[2]).append(' ');
+        pad(target, task.getCategory(), WIDTHS[3]).append(' ');
+        pad(target, priorityLabel(task.getPriority()), WIDTHS[4]);
+    }
+
+    static String dueDateText(LocalDate dueDate) {
+        return dueDateText(dueDate, "No due date");
+    }
+
+    static String dueDateText(LocalDate dueDate, String none) {
+        return dueDate != null ? dueDate.format(DATE_FORMAT) : none;
+    }
+
+    private static StringBuilder pad(StringBuilder target, String value, int width) {
+        String text = String.valueOf(value);
+        target.append(text);
+        for (int i = text.length(); i < width; i++) {
+            target.append(' ');
+        }
+        return target;
+    }
+
+    void printHeader() throws IOException {
+        line.setLength(0);
+        pad(line, "STAT", WIDTHS[0]).append(' ');
+        pad(line, "DESCRIPTION", WIDTHS[1]).append(' ');
+        pad(line, "DUE DATE", WIDTHS[2]).append(' ');
+        pad(line, "CATEGORY", WIDTHS[3]).append(' ');
+        pad(line, "PRIORITY", WIDTHS[4]).append('\n');
+        line.append(SEPARATOR).append(System.lineSeparator());
+        out.append(line);
+    }
+
+    void printRow(Task task) throws IOException {
+        LocalDate dueDate = task.getDueDate();
+        if (dueDate == null || !dueDate.equals(lastDate)) {
+            lastDate = dueDate;
+            lastDateText = dueDateText(dueDate);
+        }
+        line.setLength(0);
+        formatRow(task, line, lastDateText);
+        line.append(System.lineSeparator());
+        out.append(line);
+    }
+
+    void printRows(Iterable<Task> tasks) throws IOException {
+        for (Task task : tasks) {
+            printRow(task);
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    // Writes a full table and flushes it; System.out is flushed first so the
+    // table lands after anything printed before it
+    void printTable(Iterable<Task> tasks, boolean withHeader) {
+        System.out.flush();
+        try {
+            if (withHeader) {
+                printHeader();
+            }
+            printRows(tasks);
+            flush();
+        } catch (IOException e) {
+            System.out.println("Error printing tasks: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.*;
+
+// Inverted index over task descriptions. Descriptions are split into
+// case-folded letter/digit tokens, each mapped to the ids that contain it.
+// The token map is sorted, so "word*" prefix terms are a range lookup.
+//
+// Query syntax: terms separated by spaces must all match (AND); groups
+// separated by OR match if any group does, e.g. "buy gift OR groc*".
+class TextSearchIndex implements TaskIndex {
+    private final TaskStore store;
+    private final TreeMap<String, IntHashSet> postings = new TreeMap<>();
+
+    TextSearchIndex(TaskStore store) {
+        this.store = store;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // A parsed query: OR of groups, each group an AND of terms
+    static final class Query {
+        private final List<List<String>> groups = new ArrayList<>();
+
+        Query(String text) {
+            List<String> group = new ArrayList<>();
+            for (String word : text.trim().split("\\s+")) {
+                if (word.equals("OR")) {
+                    if (!group.isEmpty()) {
+                        groups.add(group);
+                    }
+                    group = new ArrayList<>();
+                    continue;
+                }
+                boolean prefix = word.endsWith("*");
+                List<String> tokens = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+                for (int i = 0; i < tokens.size(); i++) {
+                    group.add(prefix && i == tokens.size() - 1 ? tokens.get(i) + "*" : tokens.get(i));
+                }
+            }
+            if (!group.isEmpty()) {
+                groups.add(group);
+            }
+        }
+
+        boolean isEmpty() { return groups.isEmpty(); }
+
+        // Checks a single description without the index
+        boolean matches(String description) {
+            List<String> tokens = tokenize(description);
+            for (List<String> group : groups) {
+                boolean all = true;
+                for (String term : group) {
+                    if (!containsTerm(tokens, term)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean containsTerm(List<String> tokens, String term) {
+            boolean prefix = term.endsWith("*");
+            String stem = prefix ? term.substring(0, term.length() - 1) : term;
+            for (String token : tokens) {
+                if (prefix ? token.startsWith(stem) : token.equals(stem)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    List<Task> search(String text) {
+        Query query = new Query(text);
+        IntHashSet result = new IntHashSet();
+        for (List<String> group : query.groups) {
+            IntHashSet matches = matchGroup(group);
+            if (matches != null) {
+                matches.forEach(result::add);
+            }
+        }
+        List<Task> tasks = new ArrayList<>(result.size());
+        result.forEach(id -> tasks.add(store.findById(id)));
+        return TaskFilterIndex.sorted(tasks);
+    }
+
+    // Intersects the group's posting lists, smallest first; null means no match
+    private IntHashSet matchGroup(List<String> group) {
+        List<IntHashSet> lists = new ArrayList<>(group.size());
+        for (String term : group) {
+            IntHashSet ids = postingsFor(term);
+            if (ids == null || ids.isEmpty()) {
+                return null;
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(IntHashSet::size));
+        IntHashSet smallest = lists.get(0);
+        IntHashSet result = new IntHashSet();
+        smallest.forEach(id -> {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    return;
+                }
+            }
+            result.add(id);
+        });
+        return result;
+    }
+
+    private IntHashSet postingsFor(String term) {
+        if (!term.endsWith("*")) {
+            return postings.get(term);
+        }
+        String stem = term.substring(0, term.length() - 1);
+        SortedMap<String, IntHashSet> range = stem.isEmpty() ? postings : postings.subMap(stem, stem + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return range.values().iterator().next();
+        }
+        IntHashSet union = new IntHashSet();
+        for (IntHashSet ids : range.values()) {
+            ids.forEach(union::add);
+        }
+        return union;
+    }
+
+    private void index(int id, String description) {
+        for (String token : tokenize(description)) {
+            postings.computeIfAbsent(token, key -> new IntHashSet()).add(id);
+        }
+    }
+
+    private void unindex(int id, String description) {
+        for (String token : tokenize(description)) {
+            IntHashSet ids = postings.get(token);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    @Override
+    public void taskAdded(Task task) {
+        index(task.getId(), task.getDescription());
+    }
+
+    @Override
+    public void taskRemoved(Task task) {
+        unindex(task.getId(), task.getDescription());
+    }
+
+    @Override
+    public void taskChanged(Task task, Field field, Object oldValue) {
+        if (field == Field.DESCRIPTION) {
+            unindex(task.getId(), (String) oldValue);
+            index(task.getId(), task.getDescription());
+        }
+    }
+
+    @Override
+    public void cleared() {
+        postings.clear();
+    }
+}
@@ -1,18 +1,29 @@
 import java.io.*;
+import java.nio.file.*;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 // Task class (same as before)
 class Task implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Seeded with the start time, so a version is not handed out twice for
+    // the same id even across restarts or when undo recreates a task
+    private static final AtomicLong VERSIONS = new AtomicLong(System.currentTimeMillis() << 16);
     private int id;
     private String description;
     private boolean isCompleted;
     private LocalDate dueDate;
     private String category;
     private int priority; // 1 = High, 2 = Medium, 3 = Low
+    private transient TaskListener listener;
+    private transient int storeSlot;
+    private transient long version = VERSIONS.incrementAndGet();
     
     public Task(int id, String description, LocalDate dueDate, String category, int priority) {
         this.id = id;
@@ -26,52 +37,166 @@ class Task implements Serializable {
     // Getters and setters
     public int getId() { return id; }
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
+    public void setDescription(String description) {
+        String old = this.description;
+        this.description = description;
+        fireChanged(TaskListener.Field.DESCRIPTION, old, description);
+    }
     public boolean isCompleted() { return isCompleted; }
-    public void setCompleted(boolean completed) { isCompleted = completed; }
+    public void setCompleted(boolean completed) {
+        boolean old = isCompleted;
+        isCompleted = completed;
+        fireChanged(TaskListener.Field.COMPLETED, old, completed);
+    }
     public LocalDate getDueDate() { return dueDate; }
-    public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
+    public void setDueDate(LocalDate dueDate) {
+        LocalDate old = this.dueDate;
+        this.dueDate = dueDate;
+        fireChanged(TaskListener.Field.DUE_DATE, old, dueDate);
+    }
     public String getCategory() { return category; }
-    public void setCategory(String category) { this.category = category; }
+    public void setCategory(String category) {
+        String old = this.category;
+        this.category = category;
+        fireChanged(TaskListener.Field.CATEGORY, old, category);
+    }
     public int getPriority() { return priority; }
-    public void setPriority(int priority) { this.priority = priority; }
+    public void setPriority(int priority) {
+        int old = this.priority;
+        this.priority = priority;
+        fireChanged(TaskListener.Field.PRIORITY, old, priority);
+    }
+    
+    // Set by the store that owns this task so its indexes follow setter calls
+    void setListener(TaskListener listener) { this.listener = listener; }
+    
+    // Changes whenever a setter changes a value; HTTP clients send it back in
+    // If-Match so that an edit based on an old copy is refused, not lost
+    long getVersion() { return version; }
+    
+    // Position in the owning store's list, so removal needs no scan
+    int getStoreSlot() { return storeSlot; }
+    void setStoreSlot(int storeSlot) { this.storeSlot = storeSlot; }
+    
+    private void fireChanged(TaskListener.Field field, Object oldValue, Object newValue) {
+        if (Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        version = VERSIONS.incrementAndGet();
+        if (listener != null) {
+            listener.taskChanged(this, field, oldValue);
+        }
+    }
     
     @Override
     public String toString() {
-        String status = isCompleted ? "[✓]" : "[ ]";
-        String priorityStr = "";
-        switch(priority) {
-            case 1: priorityStr = "HIGH"; break;
-            case 2: priorityStr = "MEDIUM"; break;
-            case 3: priorityStr = "LOW"; break;
-        }
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-        String dueDateStr = (dueDate != null) ? dueDate.format(formatter) : "No due date";
-        
-        return String.format("%-4s %-50s %-12s %-15s %-10s", 
-                            status, description, dueDateStr, category, priorityStr);
+        StringBuilder row = new StringBuilder(100);
+        TaskTableRenderer.formatRow(this, row, TaskTableRenderer.dueDateText(dueDate));
+        return row.toString();
     }
 }
 
 // Main application class with dummy data
 public class TodoListApp {
-    private static List<Task> tasks = new ArrayList<>();
-    private static int nextId = 1;
-    private static final String FILE_NAME = "todo_list_data.ser";
+    private static TaskStore tasks = new TaskStore();
+    private static TaskFilterIndex filterIndex = new TaskFilterIndex(tasks);
+    private static TaskOrderIndex orderIndex = new TaskOrderIndex();
+    private static TextSearchIndex searchIndex = new TextSearchIndex(tasks);
+    private static TaskStatistics statistics = new TaskStatistics();
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+    // The default list; --list switches to a named list in TaskListRegistry.DIRECTORY
+    private static String listName;
+    private static Path dataFile = Paths.get("todo_list_data.ser");
+    private static Path logFile = Paths.get("todo_list_data.log");
+    private static final String METRICS_FILE_NAME = "todo_metrics";
+    private static TaskLog taskLog;
+    private static MappedTaskView mappedView; // set when started with --mapped
+    // Set when an unreadable data file was moved aside at startup
+    private static boolean dataFileMovedAside;
+    private static TaskAutosaver autosaver;
+    // In-memory lists only; feeds undo and the autosaver
+    private static TaskHistory history;
+    private static TaskReminders reminders;
+    // The write lock is held while a menu command or an HTTP change runs;
+    // HTTP reads share the read lock, and the autosaver snapshots under it
+    private static final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+    private static final int PAGE_SIZE = 50;
     private static Scanner scanner = new Scanner(System.in);
+    private static TaskTableRenderer renderer = new TaskTableRenderer(new FileOutputStream(FileDescriptor.out));
+    
+    static {
+        tasks.addIndex(filterIndex);
+        tasks.addIndex(orderIndex);
+        tasks.addIndex(searchIndex);
+        tasks.addIndex(statistics);
+    }
     
     public static void main(String[] args) {
-        loadTasksFromFile();
+        List<String> options = Arrays.asList(args);
+        if (options.contains("--lists")) {
+            System.exit(printLists() ? 0 : 1);
+        }
+        int list = options.indexOf("--list");
+        if (list >= 0 && !useList(argumentAfter(args, list))) {
+            System.exit(1);
+        }
+        int serve = options.indexOf("--serve");
+        if (options.contains("--mapped") && serve >= 0) {
+            System.out.println("--mapped is ignored with --serve; tasks are loaded into memory.");
+        } else if (options.contains("--mapped")) {
+            openMappedTasks();
+        } else {
+            loadTasksFromFile();
+        }
+        
+        int importAt = options.indexOf("--import");
+        int exportAt = options.indexOf("--export");
+        if (importAt >= 0 || exportAt >= 0) {
+            // Export even after a partly failed import, so the result can be inspected
+            boolean ok = importAt < 0 || runImport(argumentAfter(args, importAt));
+            ok &= exportAt < 0 || runExport(argumentAfter(args, exportAt));
+            closeTaskLog();
+            System.exit(ok ? 0 : 1);
+        }
         
-        // If no tasks were loaded from file, load dummy data
-        if (tasks.isEmpty()) {
+        int batch = options.indexOf("--batch");
+        if (batch >= 0) {
+            String source = argumentAfter(args, batch);
+            if (source.isEmpty()) {
+                source = "-";
+            }
+            boolean failed = !runBatch(source);
+            closeTaskLog();
+            System.exit(failed ? 1 : 0);
+        }
+        
+        // If no tasks were loaded from file, load dummy data; a named list starts empty,
+        // and so does a list whose data file could not be read. Only saved right
+        // away on a first run.
+        if (dataFileMovedAside) {
+            // Already reported while loading
+        } else if (taskCount() == 0 && listName == null) {
             loadDummyData();
+            if (!Files.exists(dataFile)) {
+                saveTasksToFile();
+            }
             System.out.println("Loaded dummy data for demonstration!");
+        } else if (listName != null) {
+            System.out.println("Opened list '" + listName + "' with " + taskCount() + " tasks.");
         } else {
             System.out.println("Loaded existing tasks from file.");
         }
         
+        if (serve >= 0) {
+            int port = serve + 1 < args.length && !args[serve + 1].startsWith("--") ? Integer.parseInt(args[serve + 1]) : 8080;
+            runServer(port);
+            return;
+        }
+        
+        if (mappedView == null) {
+            startInMemoryList(Integer.getInteger("todo.undo.depth", 100));
+        }
+        
         System.out.println("=========================================");
         System.out.println("   JAVA TODO LIST APP (WITH DUMMY DATA)  ");
         System.out.println("=========================================");
@@ -81,48 +206,263 @@ public class TodoListApp {
             displayMenu();
             String choice = scanner.nextLine();
             
-            switch (choice) {
-                case "1":
-                    viewTasks();
-                    break;
-                case "2":
-                    addTask();
-                    break;
-                case "3":
-                    editTask();
-                    break;
-                case "4":
-                    deleteTask();
-                    break;
-                case "5":
-                    markTaskCompleted();
-                    break;
-                case "6":
-                    filterTasks();
-                    break;
-                case "7":
-                    saveTasksToFile();
-                    System.out.println("Tasks saved successfully!");
-                    break;
-                case "8":
-                    running = false;
-                    saveTasksToFile();
-                    System.out.println("Goodbye! Your tasks have been saved.");
-                    break;
-                case "9":  // Hidden option to reload dummy data
-                    reloadDummyData();
-                    break;
-                default:
-                    System.out.println("Invalid choice. Please try again.");
+            storeLock.writeLock().lock();
+            try {
+                switch (choice) {
+                    case "1":
+                        viewTasks();
+                        break;
+                    case "2":
+                        addTask();
+                        break;
+                    case "3":
+                        editTask();
+                        break;
+                    case "4":
+                        deleteTask();
+                        break;
+                    case "5":
+                        markTaskCompleted();
+                        break;
+                    case "6":
+                        filterTasks();
+                        break;
+                    case "7":
+                        saveTasksToFile();
+                        System.out.println(autosaver != null ? "Tasks are being saved in the background." : "Tasks saved successfully!");
+                        break;
+                    case "8":
+                        running = false;
+                        saveTasksToFile();
+                        break;
+                    case "9":
+                        showDashboard();
+                        break;
+                    case "b":
+                        bulkTasks();
+                        break;
+                    case "u":
+                        undoChange(false);
+                        break;
+                    case "r":
+                        undoChange(true);
+                        break;
+                    case "reload":  // Hidden option to reload dummy data
+                        reloadDummyData();
+                        break;
+                    case "stats":  // Hidden option to show and export metrics
+                        showMetrics();
+                        break;
+                    default:
+                        System.out.println("Invalid choice. Please try again.");
+                }
+            } finally {
+                storeLock.writeLock().unlock();
             }
         }
+        stopInMemoryList();
+        closeTaskLog();
+        System.out.println("Goodbye! Your tasks have been saved.");
         scanner.close();
     }
     
+    private static boolean printLists() {
+        try {
+            List<String> names = new TaskListRegistry(TaskListRegistry.DIRECTORY, 1, null).names();
+            System.out.println(names.isEmpty() ? "No named lists yet." : String.join("\n", names));
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error listing task lists: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Points the data and log files at a named list, which starts empty
+    private static boolean useList(String name) {
+        try {
+            dataFile = TaskListRegistry.dataFile(TaskListRegistry.DIRECTORY, name);
+            logFile = TaskListRegistry.logFile(TaskListRegistry.DIRECTORY, name);
+            Files.createDirectories(TaskListRegistry.DIRECTORY);
+            listName = name;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error opening list: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private static String argumentAfter(String[] args, int index) {
+        return index + 1 < args.length && !args[index + 1].startsWith("--") ? args[index + 1] : "";
+    }
+    
+    // Adds every task in a CSV or JSON Lines file under a new id. Like batch
+    // mode this bypasses the task log and saves once at the end.
+    private static TaskExchange.Result importTasks(String file) throws IOException {
+        TaskExchange.Result result = TaskExchange.importTasks(Paths.get(file),
+                Runtime.getRuntime().availableProcessors(), record -> {
+                    Task task = new Task(nextId.getAndIncrement(), record.description(), record.dueDate(),
+                            record.category(), record.priority());
+                    task.setCompleted(record.completed());
+                    storeTask(task);
+                });
+        if (result.imported > 0) {
+            saveTasksToFile();
+        }
+        return result;
+    }
+    
+    // Writes every task in view order (file order when mapped)
+    private static long exportTasks(String file) throws IOException {
+        return TaskExchange.exportTasks(Paths.get(file), mappedView != null ? mappedView.tasks() : orderIndex.tasks());
+    }
+    
+    private static boolean runImport(String file) {
+        long start = System.nanoTime();
+        try {
+            TaskExchange.Result result = importTasks(file);
+            System.out.println("Imported " + result.imported + " tasks (" + result.failed + " failed) in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            for (String error : result.errors) {
+                System.out.println("  " + error);
+            }
+            return result.failed == 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error importing tasks: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private static boolean runExport(String file) {
+        long start = System.nanoTime();
+        try {
+            long written = exportTasks(file);
+            System.out.println("Exported " + written + " tasks to " + file + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error exporting tasks: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Applies commands from a file, or stdin for "-", without the menu. The
+    // log is bypassed; a snapshot is saved every todo.batch.checkpointEvery
+    // changes and at the end. Returns false if any command failed.
+    private static boolean runBatch(String source) {
+        TaskBatch.Target target = new TaskBatch.Target() {
+            public int nextId() { return nextId.getAndIncrement(); }
+            public Task find(int id) { return findTaskById(id); }
+            public void add(Task task) { storeTask(task); }
+            public void remove(Task task) { removeTask(task); }
+            public List<Task> filter(String kind, String argument) { return TodoListApp.filter(kind, argument); }
+            public void checkpoint() { saveTasksToFile(); }
+            public String metrics() { return metricsReport("json"); }
+            public String importFile(String path) throws IOException {
+                TaskExchange.Result result = importTasks(path);
+                return result + (result.errors.isEmpty() ? "" : "; first error " + result.errors.get(0));
+            }
+            public String exportFile(String path) throws IOException { return "exported " + exportTasks(path); }
+            public int bulk(String kind, String argument, TaskBulk.Action action, String value) {
+                List<Task> selected = filter(kind, argument);
+                if (selected == null) {
+                    throw new IllegalArgumentException("unknown filter '" + kind + "'");
+                }
+                applyBulk(selected, action, value);
+                return selected.size();
+            }
+        };
+        int checkpointEvery = Integer.getInteger("todo.batch.checkpointEvery", 100000);
+        try (Reader in = source.equals("-")
+                ? new InputStreamReader(System.in)
+                : Files.newBufferedReader(Paths.get(source))) {
+            TaskBatch taskBatch = new TaskBatch(in, new FileOutputStream(FileDescriptor.out), target, checkpointEvery);
+            taskBatch.run();
+            return taskBatch.errors() == 0;
+        } catch (IOException e) {
+            System.out.println("Error running batch: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Serves the list over HTTP until Enter is pressed or the process is
+    // stopped; changes are logged and autosaved as in the menu
+    private static void runServer(int port) {
+        TaskHttpServer.Target target = new TaskHttpServer.Target() {
+            public int nextId() { return nextId.getAndIncrement(); }
+            public Task find(int id) { return findTaskById(id); }
+            public void add(Task task) {
+                storeTask(task);
+                logTask(TaskLog.OP_ADD, task);
+            }
+            public void remove(Task task) {
+                removeTask(task);
+                logTask(TaskLog.OP_DELETE, task);
+            }
+            public void changed(byte op, Task task) { logTask(op, task); }
+            public List<Task> filter(String kind, String argument) { return TodoListApp.filter(kind, argument); }
+            public String metrics() { return metricsReport("prom"); }
+            public String dashboard() { return TodoListApp.dashboard(true); }
+        };
+        startInMemoryList(0);
+        TaskListRegistry lists = new TaskListRegistry(TaskListRegistry.DIRECTORY,
+                Integer.getInteger("todo.lists.maxLoaded", 16), listName);
+        TaskHttpServer server;
+        try {
+            server = new TaskHttpServer(port, storeLock, target, orderIndex, lists);
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+            stopInMemoryList();
+            closeTaskLog();
+            return;
+        }
+        AtomicBoolean stopped = new AtomicBoolean();
+        Runnable shutdown = () -> {
+            if (stopped.compareAndSet(false, true)) {
+                server.stop();
+                lists.close();
+                stopInMemoryList();
+                closeTaskLog();
+                LatencyHistogram latency = server.latency();
+                System.out.println("Served " + latency.count() + " requests, p50 " + latency.percentile(0.50) / 1000
+                        + " us, p99 " + latency.percentile(0.99) / 1000 + " us, max " + latency.max() / 1000 + " us.");
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(new Thread(shutdown));
+        server.start();
+        System.out.println("Serving " + taskCount() + " tasks on http://localhost:" + server.port()
+                + "/tasks with " + server.executorName() + "; named lists under /lists. Press Enter to stop.");
+        try {
+            if (scanner.hasNextLine()) {
+                scanner.nextLine();
+            } else {
+                // No console; run until the process is stopped
+                Thread.currentThread().join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shutdown.run();
+    }
+    
     private static void loadDummyData() {
+        mappedView = null;
         tasks.clear();
-        nextId = 1;
+        nextId.set(1);
+        
+        List<Task> dummyTasks = generateDummyTasks(15, nextId.get());
+        tasks.addAll(dummyTasks);
+        nextId.addAndGet(dummyTasks.size());
         
+        if (history != null) {
+            history.reset();
+        }
+        System.out.println("Loaded " + tasks.size() + " dummy tasks!");
+    }
+    
+    // Builds count dummy tasks with ids from firstId. The first 15 are the demo
+    // tasks; after that the same tasks repeat with numbered descriptions and
+    // shifted due dates, so benchmarks get realistic data at any size.
+    static List<Task> generateDummyTasks(int count, int firstId) {
         // Current date and future dates for dummy tasks
         LocalDate today = LocalDate.now();
         LocalDate tomorrow = today.plusDays(1);
@@ -131,29 +471,44 @@ public class TodoListApp {
         LocalDate nextMonth = today.plusMonths(1);
         
         // Add various dummy tasks
-        tasks.add(new Task(nextId++, "Complete Java project assignment", nextWeek, "Education", 1));
-        tasks.add(new Task(nextId++, "Buy groceries for the week", tomorrow, "Shopping", 2));
-        tasks.add(new Task(nextId++, "Schedule dentist appointment", nextMonth, "Health", 2));
-        tasks.add(new Task(nextId++, "Prepare presentation for team meeting", today, "Work", 1));
-        tasks.add(new Task(nextId++, "Read 'Clean Code' book chapter", null, "Personal", 3));
-        tasks.add(new Task(nextId++, "Pay electricity bill", yesterday, "Finance", 1));
-        tasks.add(new Task(nextId++, "Call mom for her birthday", tomorrow, "Family", 1));
-        tasks.add(new Task(nextId++, "Clean the apartment", null, "Home", 3));
-        tasks.add(new Task(nextId++, "Plan weekend hiking trip", nextWeek, "Leisure", 2));
-        tasks.add(new Task(nextId++, "Update resume for job applications", nextMonth, "Career", 2));
-        tasks.add(new Task(nextId++, "Fix leaking faucet in bathroom", null, "Home", 2));
-        tasks.add(new Task(nextId++, "Research investment options", nextWeek, "Finance", 3));
-        tasks.add(new Task(nextId++, "Finish reading novel", tomorrow, "Personal", 3));
-        tasks.add(new Task(nextId++, "Organize digital files and folders", null, "Work", 3));
-        tasks.add(new Task(nextId++, "Buy birthday gift for friend", today, "Shopping", 2));
+        List<Task> templates = new ArrayList<>();
+        templates.add(new Task(0, "Complete Java project assignment", nextWeek, "Education", 1));
+        templates.add(new Task(0, "Buy groceries for the week", tomorrow, "Shopping", 2));
+        templates.add(new Task(0, "Schedule dentist appointment", nextMonth, "Health", 2));
+        templates.add(new Task(0, "Prepare presentation for team meeting", today, "Work", 1));
+        templates.add(new Task(0, "Read 'Clean Code' book chapter", null, "Personal", 3));
+        templates.add(new Task(0, "Pay electricity bill", yesterday, "Finance", 1));
+        templates.add(new Task(0, "Call mom for her birthday", tomorrow, "Family", 1));
+        templates.add(new Task(0, "Clean the apartment", null, "Home", 3));
+        templates.add(new Task(0, "Plan weekend hiking trip", nextWeek, "Leisure", 2));
+        templates.add(new Task(0, "Update resume for job applications", nextMonth, "Career", 2));
+        templates.add(new Task(0, "Fix leaking faucet in bathroom", null, "Home", 2));
+        templates.add(new Task(0, "Research investment options", nextWeek, "Finance", 3));
+        templates.add(new Task(0, "Finish reading novel", tomorrow, "Personal", 3));
+        templates.add(new Task(0, "Organize digital files and folders", null, "Work", 3));
+        templates.add(new Task(0, "Buy birthday gift for friend", today, "Shopping", 2));
         
         // Mark some tasks as completed
-        tasks.get(0).setCompleted(true);  // Complete Java project
-        tasks.get(1).setCompleted(true);  // Buy groceries
-        tasks.get(5).setCompleted(true);  // Pay electricity bill
-        tasks.get(6).setCompleted(true);  // Call mom
+        templates.get(0).setCompleted(true);  // Complete Java project
+        templates.get(1).setCompleted(true);  // Buy groceries
+        templates.get(5).setCompleted(true);  // Pay electricity bill
+        templates.get(6).setCompleted(true);  // Call mom
         
-        System.out.println("Loaded " + tasks.size() + " dummy tasks!");
+        List<Task> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task template = templates.get(i % templates.size());
+            int round = i / templates.size();
+            String description = template.getDescription();
+            LocalDate dueDate = template.getDueDate();
+            if (round > 0) {
+                description = description + " #" + round;
+                dueDate = dueDate != null ? dueDate.plusDays(round % 60) : null;
+            }
+            Task task = new Task(firstId + i, description, dueDate, template.getCategory(), template.getPriority());
+            task.setCompleted(template.isCompleted());
+            generated.add(task);
+        }
+        return generated;
     }
     
     private static void reloadDummyData() {
@@ -161,12 +516,52 @@ public class TodoListApp {
         String confirmation = scanner.nextLine();
         if (confirmation.equalsIgnoreCase("yes")) {
             loadDummyData();
+            saveTasksToFile();
             System.out.println("Dummy data reloaded successfully!");
         } else {
             System.out.println("Operation cancelled.");
         }
     }
     
+    private static void showMetrics() {
+        if (!TaskMetrics.ENABLED) {
+            System.out.println("Metrics are off. Start the app with -Dtodo.metrics=true to collect them.");
+            return;
+        }
+        System.out.println("\n========== METRICS ==========");
+        System.out.print(metricsReport("text"));
+        System.out.print("Export to file? (json/prom, Enter to skip): ");
+        String format = scanner.nextLine().trim().toLowerCase();
+        if (format.isEmpty()) {
+            return;
+        }
+        if (!format.equals("json") && !format.equals("prom")) {
+            System.out.println("Unknown format. Nothing exported.");
+            return;
+        }
+        Path file = Paths.get(METRICS_FILE_NAME + "." + format);
+        try {
+            Files.writeString(file, metricsReport(format));
+            System.out.println("Metrics written to " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.out.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+    
+    // format is "text", "json" or "prom"
+    private static String metricsReport(String format) {
+        int count = taskCount();
+        long taskBytes = TaskMetrics.estimateTaskBytes(tasks);
+        switch (format) {
+            case "json":
+                return TaskMetrics.toJson(count, taskBytes);
+            case "prom":
+                return TaskMetrics.toPrometheus(count, taskBytes);
+            default:
+                return TaskMetrics.toText(count, taskBytes);
+        }
+    }
+    
     private static void displayMenu() {
         System.out.println("\n========== MAIN MENU ==========");
         System.out.println("1. View All Tasks");
@@ -177,36 +572,83 @@ public class TodoListApp {
         System.out.println("6. Filter Tasks");
         System.out.println("7. Save Tasks to File");
         System.out.println("8. Exit");
+        System.out.println("9. Dashboard");
+        System.out.println("b. Bulk Change");
+        System.out.println("u. Undo / r. Redo");
         System.out.println("===============================");
-        System.out.print("Enter your choice (1-8): ");
+        System.out.print("Enter your choice (1-9, b, u, r): ");
     }
     
     private static void viewTasks() {
-        if (tasks.isEmpty()) {
+        long start = TaskMetrics.start();
+        showTasks();
+        TaskMetrics.stop(TaskMetrics.Op.VIEW, start);
+    }
+    
+    private static void showTasks() {
+        if (taskCount() == 0) {
             System.out.println("\nNo tasks found. Your to-do list is empty!");
             return;
         }
         
         System.out.println("\n========================================== YOUR TODO LIST ==========================================");
-        System.out.printf("%-4s %-50s %-12s %-15s %-10s\n", "STAT", "DESCRIPTION", "DUE DATE", "CATEGORY", "PRIORITY");
-        System.out.println("---------------------------------------------------------------------------------------------------");
         
-        // Sort tasks by priority (High first) and then by due date
-        tasks.sort(Comparator.comparingInt(Task::getPriority)
-                .thenComparing(task -> task.getDueDate() != null ? task.getDueDate() : LocalDate.MAX));
-        
-        for (Task task : tasks) {
-            System.out.println(task);
+        if (mappedView != null) {
+            viewMappedTasks();
+            return;
         }
         
-        int completedCount = (int) tasks.stream().filter(Task::isCompleted).count();
-        System.out.println("\nTotal tasks: " + tasks.size() + " | Completed: " + completedCount + " | Pending: " + (tasks.size() - completedCount));
+        // Already ordered by priority (High first) and then by due date
+        renderer.printTable(orderIndex.tasks(), true);
+        
+        TaskStatistics.Counts total = statistics.total();
+        System.out.println("\nTotal tasks: " + total.total() + " | Completed: " + total.completed() + " | Pending: " + total.pending());
         System.out.println("\nSample filters to try:");
         System.out.println("- Filter by 'Completed' tasks (option 6, then 1)");
         System.out.println("- Filter by 'Work' category (option 6, then 3)");
         System.out.println("- Filter by 'High' priority (option 6, then 4)");
     }
     
+    private static void showDashboard() {
+        System.out.println("\n========== DASHBOARD ==========");
+        System.out.print(dashboard(false));
+    }
+    
+    // Kept current for in-memory lists; a mapped file is counted on demand
+    private static String dashboard(boolean json) {
+        TaskStatistics source = statistics;
+        if (mappedView != null) {
+            source = new TaskStatistics();
+            for (Task task : mappedView.tasks()) {
+                source.taskAdded(task);
+            }
+        }
+        LocalDate today = LocalDate.now();
+        return json ? source.toJson(today) : source.toText(today);
+    }
+    
+    // Pages through a mapped task file in saved order, decoding only what is shown
+    private static void viewMappedTasks() {
+        Iterator<Task> iterator = mappedView.tasks().iterator();
+        List<Task> page = new ArrayList<>(PAGE_SIZE);
+        int shown = 0;
+        while (iterator.hasNext()) {
+            page.clear();
+            while (iterator.hasNext() && page.size() < PAGE_SIZE) {
+                page.add(iterator.next());
+            }
+            renderer.printTable(page, shown == 0);
+            shown += page.size();
+            if (iterator.hasNext()) {
+                System.out.print("-- " + shown + " of " + mappedView.size() + " shown. Press Enter for more or 'q' to stop: ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                    break;
+                }
+            }
+        }
+        System.out.println("\nTotal tasks: " + mappedView.size());
+    }
+    
     private static void addTask() {
         System.out.println("\n========== ADD NEW TASK ==========");
         
@@ -224,8 +666,7 @@ public class TodoListApp {
         
         if (!dateInput.trim().isEmpty()) {
             try {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                dueDate = LocalDate.parse(dateInput, formatter);
+                dueDate = LocalDate.parse(dateInput, TaskTableRenderer.DATE_FORMAT);
                 
                 if (dueDate.isBefore(LocalDate.now())) {
                     System.out.println("Warning: Due date is in the past!");
@@ -253,13 +694,15 @@ public class TodoListApp {
             System.out.println("Invalid priority. Setting to Medium (2).");
         }
         
-        Task newTask = new Task(nextId++, description, dueDate, category, priority);
-        tasks.add(newTask);
+        Task newTask = new Task(nextId.getAndIncrement(), description, dueDate, category, priority);
+        storeTask(newTask);
+        logTask(TaskLog.OP_ADD, newTask);
+        commitStep("add task " + newTask.getId());
         System.out.println("Task added successfully! Task ID: " + newTask.getId());
     }
     
     private static void editTask() {
-        if (tasks.isEmpty()) {
+        if (taskCount() == 0) {
             System.out.println("\nNo tasks to edit. Your to-do list is empty!");
             return;
         }
@@ -280,7 +723,7 @@ public class TodoListApp {
             System.out.println("\nEditing Task:");
             System.out.println("1. Description: " + taskToEdit.getDescription());
             System.out.println("2. Due Date: " + (taskToEdit.getDueDate() != null ? 
-                taskToEdit.getDueDate().format(DateTimeFormatter.ofPattern("MM/dd/yyyy")) : "None"));
+                taskToEdit.getDueDate().format(TaskTableRenderer.DATE_FORMAT) : "None"));
             System.out.println("3. Category: " + taskToEdit.getCategory());
             System.out.println("4. Priority: " + 
                 (taskToEdit.getPriority() == 1 ? "High" : 
@@ -288,6 +731,7 @@ public class TodoListApp {
             
             System.out.print("\nWhat would you like to edit? (1-4): ");
             String editChoice = scanner.nextLine();
+            long versionBefore = taskToEdit.getVersion();
             
             switch (editChoice) {
                 case "1":
@@ -306,8 +750,7 @@ public class TodoListApp {
                         System.out.println("Due date removed.");
                     } else {
                         try {
-                            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                            LocalDate newDueDate = LocalDate.parse(newDateInput, formatter);
+                            LocalDate newDueDate = LocalDate.parse(newDateInput, TaskTableRenderer.DATE_FORMAT);
                             taskToEdit.setDueDate(newDueDate);
                             System.out.println("Due date updated.");
                         } catch (DateTimeParseException e) {
@@ -339,7 +782,14 @@ public class TodoListApp {
                     break;
                 default:
                     System.out.println("Invalid choice. No changes made.");
+                    return;
             }
+            // Empty input, a rejected value or the same value again changes nothing
+            if (taskToEdit.getVersion() == versionBefore) {
+                return;
+            }
+            logTask(TaskLog.OP_EDIT, taskToEdit);
+            commitStep("edit task " + taskId);
             
         } catch (NumberFormatException e) {
             System.out.println("Invalid ID format. Please enter a number.");
@@ -347,7 +797,7 @@ public class TodoListApp {
     }
     
     private static void deleteTask() {
-        if (tasks.isEmpty()) {
+        if (taskCount() == 0) {
             System.out.println("\nNo tasks to delete. Your to-do list is empty!");
             return;
         }
@@ -371,7 +821,9 @@ public class TodoListApp {
             String confirmation = scanner.nextLine();
             
             if (confirmation.equalsIgnoreCase("yes")) {
-                tasks.remove(taskToDelete);
+                removeTask(taskToDelete);
+                logTask(TaskLog.OP_DELETE, taskToDelete);
+                commitStep("delete task " + taskId);
                 System.out.println("Task deleted successfully.");
             } else {
                 System.out.println("Deletion cancelled.");
@@ -383,7 +835,7 @@ public class TodoListApp {
     }
     
     private static void markTaskCompleted() {
-        if (tasks.isEmpty()) {
+        if (taskCount() == 0) {
             System.out.println("\nNo tasks to mark. Your to-do list is empty!");
             return;
         }
@@ -407,6 +859,8 @@ public class TodoListApp {
             
             if (confirmation.equalsIgnoreCase("yes")) {
                 taskToMark.setCompleted(!taskToMark.isCompleted());
+                logTask(TaskLog.OP_TOGGLE, taskToMark);
+                commitStep("mark task " + taskId + " " + newStatus);
                 System.out.println("Task marked as " + newStatus + ".");
             } else {
                 System.out.println("Operation cancelled.");
@@ -418,7 +872,7 @@ public class TodoListApp {
     }
     
     private static void filterTasks() {
-        if (tasks.isEmpty()) {
+        if (taskCount() == 0) {
             System.out.println("\nNo tasks to filter. Your to-do list is empty!");
             return;
         }
@@ -430,31 +884,25 @@ public class TodoListApp {
         System.out.println("4. View Tasks by Priority");
         System.out.println("5. View Tasks Due Today");
         System.out.println("6. View Overdue Tasks");
-        System.out.print("Enter your choice (1-6): ");
+        System.out.println("7. Search Task Descriptions");
+        System.out.print("Enter your choice (1-7): ");
         
         String choice = scanner.nextLine();
-        List<Task> filteredTasks = new ArrayList<>();
-        LocalDate today = LocalDate.now();
+        List<Task> filteredTasks;
         
         switch (choice) {
             case "1":
-                filteredTasks = tasks.stream()
-                    .filter(Task::isCompleted)
-                    .toList();
+                filteredTasks = filter("completed", null);
                 System.out.println("\n========== COMPLETED TASKS ==========");
                 break;
             case "2":
-                filteredTasks = tasks.stream()
-                    .filter(task -> !task.isCompleted())
-                    .toList();
+                filteredTasks = filter("pending", null);
                 System.out.println("\n========== PENDING TASKS ==========");
                 break;
             case "3":
                 System.out.print("Enter category to filter by: ");
                 String category = scanner.nextLine();
-                filteredTasks = tasks.stream()
-                    .filter(task -> task.getCategory().equalsIgnoreCase(category))
-                    .toList();
+                filteredTasks = filter("category", category);
                 System.out.println("\n========== TASKS IN CATEGORY: " + category.toUpperCase() + " ==========");
                 break;
             case "4":
@@ -462,9 +910,7 @@ public class TodoListApp {
                 try {
                     int priority = Integer.parseInt(scanner.nextLine());
                     if (priority >= 1 && priority <= 3) {
-                        filteredTasks = tasks.stream()
-                            .filter(task -> task.getPriority() == priority)
-                            .toList();
+                        filteredTasks = filter("priority", String.valueOf(priority));
                         String priorityStr = priority == 1 ? "HIGH" : priority == 2 ? "MEDIUM" : "LOW";
                         System.out.println("\n========== " + priorityStr + " PRIORITY TASKS ==========");
                     } else {
@@ -477,19 +923,23 @@ public class TodoListApp {
                 }
                 break;
             case "5":
-                filteredTasks = tasks.stream()
-                    .filter(task -> task.getDueDate() != null && task.getDueDate().equals(today))
-                    .toList();
+                filteredTasks = filter("today", null);
                 System.out.println("\n========== TASKS DUE TODAY ==========");
                 break;
             case "6":
-                filteredTasks = tasks.stream()
-                    .filter(task -> task.getDueDate() != null && 
-                             task.getDueDate().isBefore(today) && 
-                             !task.isCompleted())
-                    .toList();
+                filteredTasks = filter("overdue", null);
                 System.out.println("\n========== OVERDUE TASKS ==========");
                 break;
+            case "7":
+                System.out.print("Enter search words (all must match; use OR between alternatives, word* for prefixes): ");
+                String queryText = scanner.nextLine();
+                if (new TextSearchIndex.Query(queryText).isEmpty()) {
+                    System.out.println("Nothing to search for. Returning to menu.");
+                    return;
+                }
+                filteredTasks = filter("search", queryText);
+                System.out.println("\n========== SEARCH RESULTS: " + queryText.trim() + " ==========");
+                break;
             default:
                 System.out.println("Invalid choice. Returning to main menu.");
                 return;
@@ -498,47 +948,496 @@ public class TodoListApp {
         if (filteredTasks.isEmpty()) {
             System.out.println("No tasks found with the selected filter.");
         } else {
-            System.out.printf("%-4s %-50s %-12s %-15s %-10s\n", "STAT", "DESCRIPTION", "DUE DATE", "CATEGORY", "PRIORITY");
-            System.out.println("---------------------------------------------------------------------------------------------------");
-            for (Task task : filteredTasks) {
-                System.out.println(task);
-            }
+            renderer.printTable(filteredTasks, true);
             System.out.println("\nTotal tasks found: " + filteredTasks.size());
         }
     }
     
+    // Shared by filterTasks and batch mode; null when kind is not a filter.
+    // Mapped files are scanned, in-memory lists answer from the indexes.
+    private static List<Task> filter(String kind, String argument) {
+        long start = TaskMetrics.start();
+        List<Task> result = runFilter(kind, argument);
+        TaskMetrics.stop(TaskMetrics.Op.FILTER, start);
+        return result;
+    }
+    
+    private static List<Task> runFilter(String kind, String argument) {
+        if (mappedView == null) {
+            return TaskList.filter(filterIndex, searchIndex, kind, argument);
+        }
+        LocalDate today = LocalDate.now();
+        switch (kind) {
+            case "completed":
+                return mappedView.filter(Task::isCompleted);
+            case "pending":
+                return mappedView.filter(task -> !task.isCompleted());
+            case "category":
+                return mappedView.filter(task -> task.getCategory().equalsIgnoreCase(argument));
+            case "priority":
+                int priority = TaskList.parsePriority(argument);
+                return mappedView.filter(task -> task.getPriority() == priority);
+            case "today":
+                return mappedView.filter(task -> today.equals(task.getDueDate()));
+            case "overdue":
+                return mappedView.filter(task -> task.getDueDate() != null && task.getDueDate().isBefore(today) && !task.isCompleted());
+            case "search":
+                TextSearchIndex.Query query = new TextSearchIndex.Query(argument);
+                return mappedView.filter(task -> query.matches(task.getDescription()));
+            default:
+                return null;
+        }
+    }
+    
     private static Task findTaskById(int id) {
-        for (Task task : tasks) {
-            if (task.getId() == id) {
-                return task;
+        long start = TaskMetrics.start();
+        Task task = mappedView != null ? mappedView.findById(id) : tasks.findById(id);
+        TaskMetrics.stop(TaskMetrics.Op.FIND, start);
+        return task;
+    }
+    
+    private static int taskCount() {
+        return mappedView != null ? mappedView.size() : tasks.size();
+    }
+    
+    private static void storeTask(Task task) {
+        if (mappedView != null) {
+            mappedView.add(task);
+        } else {
+            tasks.add(task);
+        }
+    }
+    
+    private static void removeTask(Task task) {
+        if (mappedView != null) {
+            mappedView.remove(task.getId());
+        } else {
+            tasks.remove(task);
+        }
+    }
+    
+    // Appends one record for a change; folds the log into a snapshot once it grows large
+    private static void logTask(byte op, Task task) {
+        if (taskLog == null) {
+            return;
+        }
+        try {
+            taskLog.append(op, task);
+            if (taskLog.needsCompaction()) {
+                saveTasksToFile();
             }
+        } catch (IOException e) {
+            System.out.println("Error writing to task log: " + e.getMessage());
         }
-        return null;
     }
     
+    private static void openTaskLog(long snapshotLsn) {
+        try {
+            taskLog = new TaskLog(logFile,
+                    Integer.getInteger("todo.log.syncEvery", 32),
+                    Long.getLong("todo.log.syncIntervalMillis", 1000L),
+                    Integer.getInteger("todo.log.compactEvery", 10000));
+            int replayed = taskLog.replay(snapshotLsn, new TaskLog.Target() {
+                public void add(Task task) {
+                    storeTask(task);
+                    nextId.accumulateAndGet(task.getId() + 1, Math::max);
+                }
+                public void edit(Task task) {
+                    Task existing = findTaskById(task.getId());
+                    if (existing != null) {
+                        existing.setDescription(task.getDescription());
+                        existing.setDueDate(task.getDueDate());
+                        existing.setCategory(task.getCategory());
+                        existing.setPriority(task.getPriority());
+                        existing.setCompleted(task.isCompleted());
+                    }
+                }
+                public void delete(int id) {
+                    Task existing = findTaskById(id);
+                    if (existing != null) {
+                        removeTask(existing);
+                    }
+                }
+                public void setCompleted(int id, boolean completed) {
+                    Task existing = findTaskById(id);
+                    if (existing != null) {
+                        existing.setCompleted(completed);
+                    }
+                }
+                public void bulk(byte code, String value, int[] ids) {
+                    List<Task> selected = new ArrayList<>(ids.length);
+                    for (int id : ids) {
+                        Task existing = findTaskById(id);
+                        if (existing != null) {
+                            selected.add(existing);
+                        }
+                    }
+                    applyBulk(selected, TaskBulk.Action.of(code), value);
+                }
+            });
+            if (replayed > 0) {
+                System.out.println("Recovered " + replayed + " change(s) from the task log.");
+            }
+        } catch (IOException e) {
+            System.out.println("Error opening task log: " + e.getMessage());
+            taskLog = null;
+        }
+    }
+    
+    private static void closeTaskLog() {
+        if (taskLog == null) {
+            return;
+        }
+        try {
+            taskLog.close();
+        } catch (IOException e) {
+            System.out.println("Error closing task log: " + e.getMessage());
+        }
+        taskLog = null;
+    }
+    
+    // Writes a full snapshot, swaps it in atomically and then drops the log
+    // records it covers. With the autosaver running this only asks it to save.
     private static void saveTasksToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILE_NAME))) {
-            oos.writeObject(tasks);
-            oos.writeInt(nextId);
+        if (autosaver != null) {
+            autosaver.requestSave();
+            return;
+        }
+        long lsn = taskLog != null ? taskLog.lastLsn() : 0L;
+        try {
+            if (mappedView != null) {
+                mappedView.save(nextId.get(), lsn);
+            } else {
+                // Saved in view order so a mapped reader pages through it sorted
+                TaskSnapshot.write(dataFile, orderIndex.tasks(), nextId.get(), lsn);
+            }
+            if (taskLog != null) {
+                taskLog.truncate();
+            }
         } catch (IOException e) {
             System.out.println("Error saving tasks to file: " + e.getMessage());
         }
     }
     
-    @SuppressWarnings("unchecked")
-    private static void loadTasksFromFile() {
-        File file = new File(FILE_NAME);
-        if (!file.exists()) {
+    // What an in-memory list runs with on top of its indexes: undo history,
+    // the autosaver and reminders. main, the server and the benchmarks all
+    // start the list through here. undoDepth: undo steps kept, 0 for
+    // snapshots only
+    static void startInMemoryList(int undoDepth) {
+        startHistory(undoDepth);
+        startAutosave();
+        startReminders();
+    }
+    
+    static void stopInMemoryList() {
+        stopReminders();
+        stopAutosave();
+        if (history != null) {
+            storeLock.writeLock().lock();
+            try {
+                tasks.removeIndex(history);
+            } finally {
+                storeLock.writeLock().unlock();
+            }
+            history = null;
+        }
+    }
+    
+    // The list main works on and the files it is saved to, for the benchmarks
+    static TaskStore store() { return tasks; }
+    static TaskFilterIndex filters() { return filterIndex; }
+    static TaskOrderIndex order() { return orderIndex; }
+    static TextSearchIndex search() { return searchIndex; }
+    static ReadWriteLock lock() { return storeLock; }
+    
+    static void useFiles(Path data, Path log) {
+        dataFile = data;
+        logFile = log;
+    }
+    
+    private static void startHistory(int depth) {
+        history = new TaskHistory(depth);
+        tasks.addIndex(history);
+        history.reset();
+    }
+    
+    // Mapped files have no store to batch index updates in, so they get one
+    // change per task
+    private static void applyBulk(List<Task> selected, TaskBulk.Action action, String value) {
+        if (mappedView == null) {
+            TaskBulk.apply(tasks, selected, action, value);
+        } else if (action == TaskBulk.Action.DELETE) {
+            selected.forEach(TodoListApp::removeTask);
+        } else {
+            selected.forEach(TaskBulk.change(action, value));
+        }
+    }
+    
+    private static void bulkTasks() {
+        if (taskCount() == 0) {
+            System.out.println("\nNo tasks to change. Your to-do list is empty!");
             return;
         }
         
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            tasks = (List<Task>) ois.readObject();
-            nextId = ois.readInt();
-            System.out.println("Previous tasks loaded successfully!");
-        } catch (IOException | ClassNotFoundException e) {
-            System.out.println("Error loading tasks from file. Starting with empty list.");
-            tasks = new ArrayList<>();
+        System.out.println("\n========== BULK CHANGE ==========");
+        System.out.print("Select tasks by (completed, pending, category, priority, today, overdue, search): ");
+        String kind = scanner.nextLine().trim().toLowerCase();
+        String argument = null;
+        if (kind.equals("category") || kind.equals("priority") || kind.equals("search")) {
+            System.out.print("Enter " + kind + ": ");
+            argument = scanner.nextLine();
+        }
+        try {
+            List<Task> selected = filter(kind, argument);
+            if (selected == null) {
+                System.out.println("Unknown selection. Returning to menu.");
+                return;
+            }
+            if (selected.isEmpty()) {
+                System.out.println("No tasks found with the selected filter.");
+                return;
+            }
+            System.out.print("Action for " + selected.size() + " task(s) (complete, reopen, category, priority, delete): ");
+            TaskBulk.Action action = TaskBulk.Action.parse(scanner.nextLine());
+            String value = "";
+            if (action.takesValue()) {
+                System.out.print(action == TaskBulk.Action.CATEGORY ? "Enter new category: " : "Enter new priority (1=High, 2=Medium, 3=Low): ");
+                value = scanner.nextLine();
+                TaskBulk.change(action, value);
+            }
+            System.out.print("Apply to " + selected.size() + " task(s)? Enter 'yes' to confirm: ");
+            if (!scanner.nextLine().equalsIgnoreCase("yes")) {
+                System.out.println("Bulk change cancelled.");
+                return;
+            }
+            
+            long start = System.nanoTime();
+            int[] ids = new int[selected.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = selected.get(i).getId();
+            }
+            applyBulk(selected, action, value);
+            logBulk(action, value, ids);
+            commitStep(action.name().toLowerCase() + " " + ids.length + " task(s)");
+            System.out.println("Changed " + ids.length + " task(s) in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + ". Returning to menu.");
+        }
+    }
+    
+    // The whole change is one synced log entry
+    private static void logBulk(TaskBulk.Action action, String value, int[] ids) {
+        if (taskLog == null) {
+            return;
+        }
+        try {
+            taskLog.appendBulk(action.code(), value, ids);
+            if (taskLog.needsCompaction()) {
+                saveTasksToFile();
+            }
+        } catch (IOException e) {
+            System.out.println("Error writing to task log: " + e.getMessage());
+        }
+    }
+    
+    // Closes the changes of one menu command into an undo step
+    static void commitStep(String label) {
+        if (history != null) {
+            history.commit(label);
+        }
+    }
+    
+    private static void undoChange(boolean redo) {
+        if (history == null) {
+            System.out.println("Undo is not available for a mapped task file.");
+            return;
+        }
+        TaskHistory.Target target = new TaskHistory.Target() {
+            public Task find(int id) { return tasks.findById(id); }
+            public void add(Task task) {
+                storeTask(task);
+                logTask(TaskLog.OP_ADD, task);
+            }
+            public void remove(Task task) {
+                removeTask(task);
+                logTask(TaskLog.OP_DELETE, task);
+            }
+            public void changed(Task task) { logTask(TaskLog.OP_EDIT, task); }
+        };
+        String label = redo ? history.redo(target) : history.undo(target);
+        if (label == null) {
+            System.out.println(redo ? "Nothing to redo." : "Nothing to undo.");
+        } else {
+            System.out.println((redo ? "Redone: " : "Undone: ") + label);
+        }
+    }
+    
+    // Saves in the background todo.autosave.delayMillis after a change, or
+    // sooner once todo.autosave.maxChanges changes are waiting
+    private static void startAutosave() {
+        autosaver = new TaskAutosaver(dataFile, storeLock.readLock(), new TaskAutosaver.Source() {
+            public TaskAutosaver.Capture capture() {
+                return new TaskAutosaver.Capture(history.snapshot(), nextId.get(), taskLog != null ? taskLog.lastLsn() : 0L);
+            }
+            public void published(long lsn) {
+                // Records appended after the copy are not in the snapshot yet
+                if (taskLog == null || taskLog.lastLsn() != lsn) {
+                    return;
+                }
+                try {
+                    taskLog.truncate();
+                } catch (IOException e) {
+                    System.out.println("Error truncating task log: " + e.getMessage());
+                }
+            }
+        }, Long.getLong("todo.autosave.delayMillis", 2000L), Integer.getInteger("todo.autosave.maxChanges", 1000));
+        tasks.addIndex(autosaver);
+        autosaver.start();
+    }
+    
+    // On unless -Dtodo.reminders=false; todo.reminders.leadMinutes moves them earlier
+    private static void startReminders() {
+        if ("false".equalsIgnoreCase(System.getProperty("todo.reminders"))) {
+            return;
+        }
+        long leadMillis = Long.getLong("todo.reminders.leadMinutes", 0L) * 60_000L;
+        reminders = new TaskReminders(tasks, storeLock.writeLock(), TodoListApp::printReminders, leadMillis);
+        storeLock.writeLock().lock();
+        try {
+            tasks.addIndex(reminders);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        reminders.start();
+    }
+    
+    private static void stopReminders() {
+        if (reminders == null) {
+            return;
+        }
+        storeLock.writeLock().lock();
+        try {
+            tasks.removeIndex(reminders);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        reminders.close();
+        reminders = null;
+    }
+    
+    // Overdue dates are folded into one line so a backlog does not flood the console
+    private static void printReminders(List<TaskReminders.Reminder> due) {
+        LocalDate today = LocalDate.now();
+        int overdue = 0;
+        List<TaskRecord> overdueFirst = new ArrayList<>();
+        StringBuilder out = new StringBuilder("\n");
+        for (TaskReminders.Reminder reminder : due) {
+            if (reminder.dueDate().isBefore(today)) {
+                overdue += reminder.count();
+                overdueFirst.addAll(reminder.first());
+            } else {
+                String when = reminder.dueDate().equals(today) ? "today"
+                        : reminder.dueDate().format(TaskTableRenderer.DATE_FORMAT);
+                appendReminder(out, reminder.count() + (reminder.count() == 1 ? " task" : " tasks") + " due " + when,
+                        reminder.first(), reminder.count());
+            }
+        }
+        if (overdue > 0) {
+            appendReminder(out, overdue + (overdue == 1 ? " overdue task" : " overdue tasks"), overdueFirst, overdue);
+        }
+        System.out.print(out);
+        System.out.flush();
+    }
+    
+    private static void appendReminder(StringBuilder out, String title, List<TaskRecord> first, int count) {
+        out.append("Reminder: ").append(title).append(':');
+        int listed = Math.min(first.size(), 5);
+        for (int i = 0; i < listed; i++) {
+            out.append(i == 0 ? " " : ", ").append('#').append(first.get(i).id()).append(' ').append(first.get(i).description());
+        }
+        if (count > listed) {
+            out.append(" and ").append(count - listed).append(" more");
+        }
+        out.append('\n');
+    }
+    
+    private static void stopAutosave() {
+        if (autosaver == null) {
+            return;
+        }
+        storeLock.writeLock().lock();
+        try {
+            tasks.removeIndex(autosaver);
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+        // Still saves what it has seen so far
+        autosaver.close();
+        autosaver = null;
+    }
+    
+    // Opens the data file memory-mapped; tasks are decoded only when shown or looked up
+    private static void openMappedTasks() {
+        long start = TaskMetrics.start();
+        try {
+            mappedView = new MappedTaskView(dataFile);
+            nextId.set(mappedView.nextId());
+            System.out.println("Opened " + mappedView.size() + " tasks from file (mapped).");
+            openTaskLog(mappedView.lsn());
+            TaskMetrics.stop(TaskMetrics.Op.LOAD, start);
+        } catch (IOException e) {
+            System.out.println("Cannot open task file mapped (" + e.getMessage() + "). Loading it into memory.");
+            mappedView = null;
+            loadTasksFromFile();
+        }
+    }
+    
+    private static void loadTasksFromFile() {
+        long start = TaskMetrics.start();
+        long snapshotLsn = 0L;
+        if (Files.exists(dataFile)) {
+            try {
+                TaskSnapshot snapshot = TaskSnapshot.read(dataFile);
+                tasks.clear();
+                tasks.addAll(snapshot.tasks);
+                nextId.set(snapshot.nextId);
+                snapshotLsn = snapshot.lsn;
+                System.out.println("Previous tasks loaded successfully!");
+                if (snapshot.legacy) {
+                    System.out.println("Task file is in the old format and will be converted on the next save.");
+                }
+            } catch (IOException e) {
+                System.out.println("Error loading tasks from file: " + e.getMessage());
+                tasks.clear();
+                moveAsideUnreadableFiles();
+            }
+        }
+        openTaskLog(snapshotLsn);
+        TaskMetrics.stop(TaskMetrics.Op.LOAD, start);
+    }
+    
+    // Keeps the data file and the log that goes with it out of the way of the
+    // next save; replaying the log onto an empty list and then truncating it
+    // would lose both. Exits if they cannot be moved.
+    private static void moveAsideUnreadableFiles() {
+        try {
+            System.out.println("Moved it to " + moveAside(dataFile) + ".");
+            if (Files.exists(logFile)) {
+                System.out.println("Moved the task log to " + moveAside(logFile) + ".");
+            }
+        } catch (IOException e) {
+            System.out.println("Error moving unreadable task file aside: " + e.getMessage());
+            System.exit(1);
+        }
+        dataFileMovedAside = true;
+        System.out.println("Starting with empty list.");
+    }
+    
+    private static Path moveAside(Path file) throws IOException {
+        Path target = file.resolveSibling(file.getFileName() + ".corrupt");
+        for (int i = 1; Files.exists(target); i++) {
+            target = file.resolveSibling(file.getFileName() + ".corrupt." + i);
         }
+        return Files.move(file, target);
     }
 }
\ No newline at end of file